@@ -23,6 +23,7 @@ import com.amlinv.registry.util.listener.SimpleSynchronousNotificationExecutor;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * In-memory registry backed by a concurrent map which supports listeners and a configurable notification strategy
@@ -31,12 +32,19 @@ import java.util.concurrent.ConcurrentLinkedDeque;
  * Created by art on 5/5/15.
  */
 public class ConcurrentRegistry<K, V> {
-    private final ConcurrentHashMap<K, V> store = new ConcurrentHashMap<>();
+    /**
+     * Number of locks across which keys are spread when key-ordered notification is enabled; a power of 2.
+     */
+    public static final int KEY_LOCK_STRIPES = 64;
+
+    private final ConcurrentMap<K, V> store;
     private final ConcurrentLinkedDeque<RegistryListener<K, V>>
         listeners = new ConcurrentLinkedDeque<>();
 
     private final NotificationExecutor<K, V> notificationExecutor;
 
+    private volatile Object[] keyLocks;
+
     /**
      * Create a new registry using the default notification executor class, SimpleSynchronousNotificationExecutor.
      * See also the warnings in the SimpleSynchronousNotificationExecutor.
@@ -53,6 +61,18 @@ public class ConcurrentRegistry<K, V> {
      * @param notificationExecutor executor of notifications.
      */
     public ConcurrentRegistry(NotificationExecutor<K, V> notificationExecutor) {
+        this(new ConcurrentHashMap<K, V>(), notificationExecutor);
+    }
+
+    /**
+     * Create a new registry which holds its entries in the given map, for use by registries needing alternate
+     * storage.  The map must be empty and must not be modified other than through the registry.
+     *
+     * @param store map in which to hold the entries of the registry.
+     * @param notificationExecutor executor of notifications.
+     */
+    protected ConcurrentRegistry(ConcurrentMap<K, V> store, NotificationExecutor<K, V> notificationExecutor) {
+        this.store = store;
         this.notificationExecutor = notificationExecutor;
     }
 
@@ -65,6 +85,43 @@ public class ConcurrentRegistry<K, V> {
         return notificationExecutor;
     }
 
+    /**
+     * Determine whether updates to the same key are notified in the order they are applied.
+     *
+     * @return true => if key-ordered notification is enabled; false => otherwise.
+     */
+    public boolean isKeyOrderedNotification() {
+        return this.keyLocks != null;
+    }
+
+    /**
+     * Enable or disable key-ordered notification.  By default, concurrent updates to the same key may notify listeners
+     * in a different order than they are applied to the registry, so that listeners tracking the content of the
+     * registry can drift from it.  When enabled, each update and its notification are performed while holding a lock
+     * striped by key, so listeners see the changes to any one key in the order they were made.  Updates to keys
+     * sharing a stripe are serialized.  Stripes are chosen by the hash code of the key, so keys which the store treats
+     * as the same key must have the same hash code.  Should be set before the registry is in use.
+     * <p>
+     * While enabled, listeners may update the key they are notified of, but must not update, or otherwise block on,
+     * other keys of the registry, whether from the notifying thread or another one: an update to another key waits
+     * for any notification in progress on that key's stripe, so two listeners doing so in opposite order deadlock.
+     * </p>
+     *
+     * @param keyOrderedNotification true => notify changes to each key in order; false => otherwise.
+     */
+    public void setKeyOrderedNotification(boolean keyOrderedNotification) {
+        if ( keyOrderedNotification ) {
+            Object[] newKeyLocks = new Object[KEY_LOCK_STRIPES];
+            for ( int cur = 0; cur < newKeyLocks.length; cur++ ) {
+                newKeyLocks[cur] = new Object();
+            }
+
+            this.keyLocks = newKeyLocks;
+        } else {
+            this.keyLocks = null;
+        }
+    }
+
     /**
      * Retrieve a copy of the list of listeners to this registry.
      *
@@ -104,6 +161,15 @@ public class ConcurrentRegistry<K, V> {
         this.listeners.remove(removeListener);
     }
 
+    /**
+     * Iterate over the listeners of this registry, for subclasses firing their own notifications.
+     *
+     * @return iterator over the current listeners.
+     */
+    protected Iterator<RegistryListener<K, V>> listenerIterator() {
+        return this.listeners.iterator();
+    }
+
     /**
      * Return the entry in the registry identified by the given key.
      *
@@ -132,15 +198,14 @@ public class ConcurrentRegistry<K, V> {
      * @return
      */
     public V put (K putKey, V putValue) {
-        V oldValue = this.store.put(putKey, putValue);
-
-        if ( oldValue == null ) {
-            this.notificationExecutor.firePutNotification(this.listeners.iterator(), putKey, putValue);
-        } else {
-            this.notificationExecutor.fireReplaceNotification(this.listeners.iterator(), putKey, oldValue, putValue);
+        Object keyLock = this.keyLock(putKey);
+        if ( keyLock == null ) {
+            return this.putNotify(putKey, putValue);
         }
 
-        return  oldValue;
+        synchronized ( keyLock ) {
+            return this.putNotify(putKey, putValue);
+        }
     }
 
     /**
@@ -151,13 +216,14 @@ public class ConcurrentRegistry<K, V> {
      * @return existing value in the registry if already defined; null if the new value is added to the registry.
      */
     public V putIfAbsent (K putKey, V putValue) {
-        V existingValue = this.store.putIfAbsent(putKey, putValue);
-
-        if ( existingValue == null ) {
-            this.notificationExecutor.firePutNotification(this.listeners.iterator(), putKey, putValue);
+        Object keyLock = this.keyLock(putKey);
+        if ( keyLock == null ) {
+            return this.putIfAbsentNotify(putKey, putValue);
         }
 
-        return  existingValue;
+        synchronized ( keyLock ) {
+            return this.putIfAbsentNotify(putKey, putValue);
+        }
     }
 
     /**
@@ -167,13 +233,14 @@ public class ConcurrentRegistry<K, V> {
      * @return value of the removed entry; null if no value was removed.
      */
     public V remove (K removeKey) {
-        V removedValue = this.store.remove(removeKey);
-
-        if ( removedValue != null ) {
-            this.notificationExecutor.fireRemoveNotification(this.listeners.iterator(), removeKey, removedValue);
+        Object keyLock = this.keyLock(removeKey);
+        if ( keyLock == null ) {
+            return this.removeNotify(removeKey);
         }
 
-        return  removedValue;
+        synchronized ( keyLock ) {
+            return this.removeNotify(removeKey);
+        }
     }
 
     /**
@@ -184,13 +251,14 @@ public class ConcurrentRegistry<K, V> {
      * @return true => if the value was removed; false => otherwise.
      */
     public boolean remove (K removeKey, V removeValue) {
-        boolean removedInd = this.store.remove(removeKey, removeValue);
-
-        if ( removedInd ) {
-            this.notificationExecutor.fireRemoveNotification(this.listeners.iterator(), removeKey, removeValue);
+        Object keyLock = this.keyLock(removeKey);
+        if ( keyLock == null ) {
+            return this.removeNotify(removeKey, removeValue);
         }
 
-        return  removedInd;
+        synchronized ( keyLock ) {
+            return this.removeNotify(removeKey, removeValue);
+        }
     }
 
     /**
@@ -222,4 +290,70 @@ public class ConcurrentRegistry<K, V> {
     public Map<K, V> asMap() {
         return Collections.unmodifiableMap(this.store);
     }
+
+    /**
+     * Return the lock which orders the updates to the given key, for subclasses which notify listeners of changes
+     * they make directly to the underlying store.
+     *
+     * @param key key for which to obtain the lock.
+     * @return lock for the key; null if key-ordered notification is disabled.
+     */
+    protected Object keyLock(K key) {
+        Object[] locks = this.keyLocks;
+        if ( locks == null ) {
+            return null;
+        }
+
+        int hash = key.hashCode();
+        hash ^= ( hash >>> 16 );
+
+        return locks[hash & ( locks.length - 1 )];
+    }
+
+
+                                                 ////             ////
+                                                 ////  INTERNALS  ////
+                                                 ////             ////
+
+    private V putNotify (K putKey, V putValue) {
+        V oldValue = this.store.put(putKey, putValue);
+
+        if ( oldValue == null ) {
+            this.notificationExecutor.firePutNotification(this.listeners.iterator(), putKey, putValue);
+        } else {
+            this.notificationExecutor.fireReplaceNotification(this.listeners.iterator(), putKey, oldValue, putValue);
+        }
+
+        return  oldValue;
+    }
+
+    private V putIfAbsentNotify (K putKey, V putValue) {
+        V existingValue = this.store.putIfAbsent(putKey, putValue);
+
+        if ( existingValue == null ) {
+            this.notificationExecutor.firePutNotification(this.listeners.iterator(), putKey, putValue);
+        }
+
+        return  existingValue;
+    }
+
+    private V removeNotify (K removeKey) {
+        V removedValue = this.store.remove(removeKey);
+
+        if ( removedValue != null ) {
+            this.notificationExecutor.fireRemoveNotification(this.listeners.iterator(), removeKey, removedValue);
+        }
+
+        return  removedValue;
+    }
+
+    private boolean removeNotify (K removeKey, V removeValue) {
+        boolean removedInd = this.store.remove(removeKey, removeValue);
+
+        if ( removedInd ) {
+            this.notificationExecutor.fireRemoveNotification(this.listeners.iterator(), removeKey, removeValue);
+        }
+
+        return  removedInd;
+    }
 }
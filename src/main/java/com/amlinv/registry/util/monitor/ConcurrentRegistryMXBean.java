@@ -0,0 +1,71 @@
+/*
+ *   Copyright 2015 AML Innovation & Consulting LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.amlinv.registry.util.monitor;
+
+/**
+ * Management interface exposing the size and activity of a single ConcurrentRegistry.  Notification counts and
+ * rates are only available for registries using an InstrumentedNotificationExecutor, and are reported as 0 otherwise.
+ * They count changes notified to listeners rather than calls to the registry; see InstrumentedNotificationExecutor.
+ */
+public interface ConcurrentRegistryMXBean {
+    String getName();
+
+    int getEntryCount();
+
+    int getListenerCount();
+
+    boolean isInstrumented();
+
+    long getPutNotificationCount();
+
+    long getRemoveNotificationCount();
+
+    long getReplaceNotificationCount();
+
+    /**
+     * @return notifications fired, of all types.
+     */
+    long getNotificationCount();
+
+    /**
+     * @return put notifications per second over the most recent sampling interval.
+     */
+    double getPutNotificationRate();
+
+    /**
+     * @return remove notifications per second over the most recent sampling interval.
+     */
+    double getRemoveNotificationRate();
+
+    /**
+     * @return replace notifications per second over the most recent sampling interval.
+     */
+    double getReplaceNotificationRate();
+
+    /**
+     * @return notifications, of all types, per second over the most recent sampling interval.
+     */
+    double getNotificationRate();
+
+    long getTotalDispatchTimeNanos();
+
+    /**
+     * @return average time, in nanoseconds, spent dispatching a single notification to all listeners.
+     */
+    double getAverageDispatchTimeNanos();
+}
@@ -0,0 +1,257 @@
+/*
+ *   Copyright 2015 AML Innovation & Consulting LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.amlinv.registry.util.monitor;
+
+import com.amlinv.registry.util.ConcurrentRegistry;
+import com.amlinv.registry.util.listener.NotificationExecutor;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMX MBean reporting the size and activity of a named ConcurrentRegistry.  Notification counts, rates and dispatch
+ * times are taken from the registry's notification executor, when it is an InstrumentedNotificationExecutor.
+ * <p>
+ * Rates are computed from the change in the counts between samples; a new sample is taken when a rate is read at
+ * least one sampling interval after the previous sample, so the rates reflect recent activity rather than the
+ * lifetime average.
+ * </p>
+ */
+public class ConcurrentRegistryMonitor implements ConcurrentRegistryMXBean {
+    public static final String OBJECT_NAME_DOMAIN = "com.amlinv.registry";
+    public static final long DEFAULT_SAMPLE_INTERVAL_MS = 1000L;
+
+    private final String name;
+    private final ConcurrentRegistry<?, ?> registry;
+    private final InstrumentedNotificationExecutor<?, ?> instrumentation;
+    private final ObjectName objectName;
+
+    private final RateSampler putRate;
+    private final RateSampler removeRate;
+    private final RateSampler replaceRate;
+    private final RateSampler notificationRate;
+
+    private MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    private volatile long sampleIntervalNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_SAMPLE_INTERVAL_MS);
+
+    /**
+     * Create a monitor for the given registry.
+     *
+     * @param name name of the registry, used to form the MBean's object name.
+     * @param registry registry to monitor.
+     * @throws MalformedObjectNameException if the name cannot be used in an object name.
+     */
+    public ConcurrentRegistryMonitor(String name, ConcurrentRegistry<?, ?> registry)
+            throws MalformedObjectNameException {
+
+        this.name = name;
+        this.registry = registry;
+        this.objectName = new ObjectName(OBJECT_NAME_DOMAIN + ":type=ConcurrentRegistry,name=" +
+                ObjectName.quote(name));
+
+        NotificationExecutor<?, ?> executor = registry.getNotificationExecutor();
+        if ( executor instanceof InstrumentedNotificationExecutor ) {
+            this.instrumentation = (InstrumentedNotificationExecutor<?, ?>) executor;
+        } else {
+            this.instrumentation = null;
+        }
+
+        // Seed the samplers so the first rates reflect activity since now, not since the registry was created.
+        this.putRate = new RateSampler(this.getPutNotificationCount());
+        this.removeRate = new RateSampler(this.getRemoveNotificationCount());
+        this.replaceRate = new RateSampler(this.getReplaceNotificationCount());
+        this.notificationRate = new RateSampler(this.getNotificationCount());
+    }
+
+    public ObjectName getObjectName() {
+        return objectName;
+    }
+
+    /**
+     * Set the MBean server with which to register; defaults to the platform MBean server.
+     *
+     * @param mBeanServer server with which to register the MBean.
+     */
+    public void setMBeanServer(MBeanServer mBeanServer) {
+        this.mBeanServer = mBeanServer;
+    }
+
+    public void setSampleIntervalMs(long sampleIntervalMs) {
+        this.sampleIntervalNanos = TimeUnit.MILLISECONDS.toNanos(sampleIntervalMs);
+    }
+
+    /**
+     * Register this monitor with the MBean server.
+     *
+     * @throws JMException if registration fails, including when another registry is already registered under the
+     * same name.
+     */
+    public void register() throws JMException {
+        this.mBeanServer.registerMBean(this, this.objectName);
+    }
+
+    /**
+     * Unregister this monitor from the MBean server, if registered.
+     *
+     * @throws JMException if unregistration fails.
+     */
+    public void unregister() throws JMException {
+        if ( this.mBeanServer.isRegistered(this.objectName) ) {
+            this.mBeanServer.unregisterMBean(this.objectName);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getEntryCount() {
+        return this.registry.asMap().size();
+    }
+
+    @Override
+    public int getListenerCount() {
+        return this.registry.getListeners().size();
+    }
+
+    @Override
+    public boolean isInstrumented() {
+        return this.instrumentation != null;
+    }
+
+    @Override
+    public long getPutNotificationCount() {
+        if ( this.instrumentation == null ) {
+            return 0;
+        }
+
+        return this.instrumentation.getPutNotificationCount();
+    }
+
+    @Override
+    public long getRemoveNotificationCount() {
+        if ( this.instrumentation == null ) {
+            return 0;
+        }
+
+        return this.instrumentation.getRemoveNotificationCount();
+    }
+
+    @Override
+    public long getReplaceNotificationCount() {
+        if ( this.instrumentation == null ) {
+            return 0;
+        }
+
+        return this.instrumentation.getReplaceNotificationCount();
+    }
+
+    @Override
+    public long getNotificationCount() {
+        if ( this.instrumentation == null ) {
+            return 0;
+        }
+
+        return this.instrumentation.getNotificationCount();
+    }
+
+    @Override
+    public double getPutNotificationRate() {
+        return this.putRate.sample(this.getPutNotificationCount());
+    }
+
+    @Override
+    public double getRemoveNotificationRate() {
+        return this.removeRate.sample(this.getRemoveNotificationCount());
+    }
+
+    @Override
+    public double getReplaceNotificationRate() {
+        return this.replaceRate.sample(this.getReplaceNotificationCount());
+    }
+
+    @Override
+    public double getNotificationRate() {
+        return this.notificationRate.sample(this.getNotificationCount());
+    }
+
+    @Override
+    public long getTotalDispatchTimeNanos() {
+        if ( this.instrumentation == null ) {
+            return 0;
+        }
+
+        return this.instrumentation.getTotalDispatchNanos();
+    }
+
+    @Override
+    public double getAverageDispatchTimeNanos() {
+        if ( this.instrumentation == null ) {
+            return 0;
+        }
+
+        //
+        // Read the time first; notifications are counted before their time is added, so concurrent notifications
+        //  can only lower, not inflate, the average.
+        //
+        long totalNanos = this.instrumentation.getTotalDispatchNanos();
+        long count = this.instrumentation.getNotificationCount();
+        if ( count == 0 ) {
+            return 0;
+        }
+
+        return (double) totalNanos / count;
+    }
+
+
+                                                 ////             ////
+                                                 ////  INTERNALS  ////
+                                                 ////             ////
+
+    /**
+     * Rate of change of a monotonically increasing count, recomputed at most once per sampling interval.
+     */
+    private class RateSampler {
+        private long lastSampleNanos = System.nanoTime();
+        private long lastSampleCount;
+        private double rate;
+
+        public RateSampler(long initialCount) {
+            this.lastSampleCount = initialCount;
+        }
+
+        public synchronized double sample(long count) {
+            long now = System.nanoTime();
+            long elapsed = now - this.lastSampleNanos;
+
+            if ( elapsed >= sampleIntervalNanos ) {
+                this.rate = ( count - this.lastSampleCount ) * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+                this.lastSampleNanos = now;
+                this.lastSampleCount = count;
+            }
+
+            return this.rate;
+        }
+    }
+}
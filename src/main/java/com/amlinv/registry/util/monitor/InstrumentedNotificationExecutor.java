@@ -0,0 +1,124 @@
+/*
+ *   Copyright 2015 AML Innovation & Consulting LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.amlinv.registry.util.monitor;
+
+import com.amlinv.registry.util.RegistryListener;
+import com.amlinv.registry.util.listener.NotificationExecutor;
+
+import java.util.Iterator;
+
+/**
+ * Notification executor which counts the notifications passed to another executor and measures the time spent
+ * dispatching them.
+ * <p>
+ * The counts are of notifications, and therefore of changes to the registry, rather than of calls to it: operations
+ * which change nothing, such as a putIfAbsent() finding an existing value or a remove() of a missing key, are not
+ * counted, while changes which registry subclasses notify on their own account are; for example, values loaded by a
+ * NearCacheRegistry are counted as puts.
+ * </p>
+ * <p>
+ * Instrumentation is enabled by wrapping the registry's executor with this one; registries constructed without it
+ * pay no instrumentation cost.
+ * </p>
+ */
+public class InstrumentedNotificationExecutor<K, V> implements NotificationExecutor<K, V> {
+    private final NotificationExecutor<K, V> delegate;
+
+    private final StripedCounter putNotificationCount = new StripedCounter();
+    private final StripedCounter removeNotificationCount = new StripedCounter();
+    private final StripedCounter replaceNotificationCount = new StripedCounter();
+    private final StripedCounter dispatchNanos = new StripedCounter();
+
+    /**
+     * Create an instrumented executor which dispatches notifications using the executor given.
+     *
+     * @param delegate executor which performs the actual dispatch of notifications.
+     */
+    public InstrumentedNotificationExecutor(NotificationExecutor<K, V> delegate) {
+        this.delegate = delegate;
+    }
+
+    public NotificationExecutor<K, V> getDelegate() {
+        return delegate;
+    }
+
+    public long getPutNotificationCount() {
+        return this.putNotificationCount.sum();
+    }
+
+    public long getRemoveNotificationCount() {
+        return this.removeNotificationCount.sum();
+    }
+
+    public long getReplaceNotificationCount() {
+        return this.replaceNotificationCount.sum();
+    }
+
+    /**
+     * Return the total number of notifications fired, of all types.
+     *
+     * @return number of notifications fired.
+     */
+    public long getNotificationCount() {
+        return this.getPutNotificationCount() + this.getRemoveNotificationCount() + this.getReplaceNotificationCount();
+    }
+
+    /**
+     * Return the total time spent in the delegate executor, across all threads.  Each notification is counted before
+     * its time is added, so reading the time before the counts never includes the time of an uncounted notification.
+     *
+     * @return total dispatch time, in nanoseconds.
+     */
+    public long getTotalDispatchNanos() {
+        return this.dispatchNanos.sum();
+    }
+
+    @Override
+    public void firePutNotification(Iterator<RegistryListener<K, V>> listeners, K putKey, V putValue) {
+        long start = System.nanoTime();
+        try {
+            this.delegate.firePutNotification(listeners, putKey, putValue);
+        } finally {
+            this.putNotificationCount.increment();
+            this.dispatchNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void fireRemoveNotification(Iterator<RegistryListener<K, V>> listeners, K removeKey, V removeValue) {
+        long start = System.nanoTime();
+        try {
+            this.delegate.fireRemoveNotification(listeners, removeKey, removeValue);
+        } finally {
+            this.removeNotificationCount.increment();
+            this.dispatchNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void fireReplaceNotification(Iterator<RegistryListener<K, V>> listeners, K replaceKey, V oldValue,
+                                        V newValue) {
+        long start = System.nanoTime();
+        try {
+            this.delegate.fireReplaceNotification(listeners, replaceKey, oldValue, newValue);
+        } finally {
+            this.replaceNotificationCount.increment();
+            this.dispatchNanos.add(System.nanoTime() - start);
+        }
+    }
+}
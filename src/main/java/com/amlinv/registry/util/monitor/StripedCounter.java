@@ -0,0 +1,97 @@
+/*
+ *   Copyright 2015 AML Innovation & Consulting LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.amlinv.registry.util.monitor;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter which spreads updates across padded cells selected by the updating thread, in the style of the JDK 8
+ * LongAdder, so that frequent updates from many threads do not contend on a single value.  Reading the counter sums
+ * the cells and is therefore more expensive than updating it.
+ */
+public class StripedCounter {
+    /**
+     * Number of longs per cell, so that each cell occupies its own 64-byte cache line.
+     */
+    private static final int CELL_PADDING = 8;
+
+    private final AtomicLongArray cells;
+    private final int mask;
+
+    /**
+     * Create a counter with one stripe per available processor, rounded up to a power of two.
+     */
+    public StripedCounter() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a counter with the given number of stripes, rounded up to a power of two.
+     *
+     * @param stripes number of independently-updated cells.
+     */
+    public StripedCounter(int stripes) {
+        int size = 1;
+        while ( size < stripes ) {
+            size <<= 1;
+        }
+
+        this.mask = size - 1;
+        this.cells = new AtomicLongArray(size * CELL_PADDING);
+    }
+
+    public void increment() {
+        this.add(1L);
+    }
+
+    public void add(long delta) {
+        this.cells.getAndAdd(this.cellIndex(), delta);
+    }
+
+    /**
+     * Return the current total; updates which happen concurrently with the read may or may not be included.
+     *
+     * @return sum of all of the cells.
+     */
+    public long sum() {
+        long result = 0;
+
+        int cur = 0;
+        while ( cur < this.cells.length() ) {
+            result += this.cells.get(cur);
+            cur += CELL_PADDING;
+        }
+
+        return result;
+    }
+
+
+                                                 ////             ////
+                                                 ////  INTERNALS  ////
+                                                 ////             ////
+
+    private int cellIndex() {
+        long threadId = Thread.currentThread().getId();
+
+        int hash = (int) ( threadId ^ ( threadId >>> 32 ) );
+        hash *= 0x9E3779B9;
+        hash ^= hash >>> 16;
+
+        return ( hash & this.mask ) * CELL_PADDING;
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ *   Copyright 2015 AML Innovation & Consulting LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.amlinv.registry.util.reference;
+
+/**
+ * Listener for entries of a ReferenceValuedRegistry whose values were collected by the garbage collector.  Registry
+ * listeners implementing this interface are notified when such entries are purged; since the value is no longer
+ * available, the purge is never reported through onRemoveEntry().
+ */
+public interface CollectedEntryListener<K> {
+    /**
+     * Notification immediately after an entry whose value was collected is purged from the registry.  Note this
+     * method is called synchronously within the purge and is therefore expected to be performed quickly.
+     *
+     * @param collectedKey key of the entry that was purged.
+     */
+    void    onCollectedEntry(K collectedKey);
+}
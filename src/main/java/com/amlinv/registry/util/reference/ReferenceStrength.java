@@ -0,0 +1,33 @@
+/*
+ *   Copyright 2015 AML Innovation & Consulting LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.amlinv.registry.util.reference;
+
+/**
+ * Strength of the references through which a ReferenceValuedRegistry holds its values.
+ */
+public enum ReferenceStrength {
+    /**
+     * Values are held through weak references and are removed as soon as no other component holds them.
+     */
+    WEAK,
+
+    /**
+     * Values are held through soft references and are removed only when the JVM needs the memory.
+     */
+    SOFT
+}
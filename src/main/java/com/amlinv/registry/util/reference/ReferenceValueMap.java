@@ -0,0 +1,297 @@
+/*
+ *   Copyright 2015 AML Innovation & Consulting LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.amlinv.registry.util.reference;
+
+import java.lang.ref.ReferenceQueue;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Concurrent map which holds its values through weak or soft references.  Entries whose values have been collected
+ * read as absent; they are purged from the map when drained from the reference queue, or when displaced by another
+ * operation on the same key.  Every purged entry is reported to the collection listener exactly once.
+ * <p>
+ * The size of the map, and therefore equality with other maps, may include entries which have been collected but not
+ * yet purged.
+ * </p>
+ */
+class ReferenceValueMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+    private final ConcurrentHashMap<K, ValueReference<K, V>> references = new ConcurrentHashMap<>();
+    private final ReferenceQueue<V> referenceQueue = new ReferenceQueue<>();
+    private final ReferenceStrength strength;
+    private final EntrySet entrySet = new EntrySet();
+
+    private CollectionListener<K> collectionListener;
+
+    public ReferenceValueMap(ReferenceStrength strength) {
+        this.strength = strength;
+    }
+
+    public void setCollectionListener(CollectionListener<K> collectionListener) {
+        this.collectionListener = collectionListener;
+    }
+
+    /**
+     * Retrieve the next reference whose value the garbage collector has reported as collected.
+     *
+     * @return reference to the collected value; null if there are none.
+     */
+    @SuppressWarnings("unchecked")
+    public ValueReference<K, V> pollCollected() {
+        return (ValueReference<K, V>) this.referenceQueue.poll();
+    }
+
+    /**
+     * Purge the entry holding the given collected reference, if it is still in the map.
+     *
+     * @param collected reference retrieved from pollCollected().
+     * @return true => if the entry was purged and reported; false => if the entry was already displaced, and
+     * reported, by another operation on the key.
+     */
+    public boolean purgeCollected(ValueReference<K, V> collected) {
+        if ( this.references.remove(collected.getKey(), collected) ) {
+            this.collectionListener.onCollected(collected.getKey());
+            return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public V get(Object key) {
+        return dereference(this.references.get(key));
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return this.get(key) != null;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return this.displaced(this.references.put(key, this.newReference(key, value)));
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        ValueReference<K, V> newReference = this.newReference(key, value);
+
+        while ( true ) {
+            ValueReference<K, V> existing = this.references.putIfAbsent(key, newReference);
+            if ( existing == null ) {
+                return null;
+            }
+
+            V existingValue = existing.get();
+            if ( existingValue != null ) {
+                return existingValue;
+            }
+
+            if ( this.references.replace(key, existing, newReference) ) {
+                this.collectionListener.onCollected(key);
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        return this.displaced(this.references.remove(key));
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        while ( true ) {
+            ValueReference<K, V> existing = this.references.get(key);
+            if ( existing == null ) {
+                return false;
+            }
+
+            V existingValue = existing.get();
+            if ( ( existingValue == null ) || ( ! existingValue.equals(value) ) ) {
+                return false;
+            }
+
+            if ( this.references.remove(key, existing) ) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        ValueReference<K, V> newReference = this.newReference(key, newValue);
+
+        while ( true ) {
+            ValueReference<K, V> existing = this.references.get(key);
+            if ( existing == null ) {
+                return false;
+            }
+
+            V existingValue = existing.get();
+            if ( ( existingValue == null ) || ( ! existingValue.equals(oldValue) ) ) {
+                return false;
+            }
+
+            if ( this.references.replace(key, existing, newReference) ) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        ValueReference<K, V> newReference = this.newReference(key, value);
+
+        while ( true ) {
+            ValueReference<K, V> existing = this.references.get(key);
+            if ( existing == null ) {
+                return null;
+            }
+
+            V existingValue = existing.get();
+            if ( existingValue == null ) {
+                return null;
+            }
+
+            if ( this.references.replace(key, existing, newReference) ) {
+                return existingValue;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return this.references.size();
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return this.entrySet;
+    }
+
+
+                                                 ////             ////
+                                                 ////  INTERNALS  ////
+                                                 ////             ////
+
+    private ValueReference<K, V> newReference(K key, V value) {
+        if ( value == null ) {
+            throw new NullPointerException("null values are not supported");
+        }
+
+        if ( this.strength == ReferenceStrength.SOFT ) {
+            return new ValueReference.Soft<>(key, value, this.referenceQueue);
+        }
+
+        return new ValueReference.Weak<>(key, value, this.referenceQueue);
+    }
+
+    /**
+     * Resolve the value of a reference which was just removed from the map, reporting it as collected if the value
+     * is already gone.
+     */
+    private V displaced(ValueReference<K, V> reference) {
+        if ( reference == null ) {
+            return null;
+        }
+
+        V value = reference.get();
+        if ( value == null ) {
+            this.collectionListener.onCollected(reference.getKey());
+        }
+
+        return value;
+    }
+
+    private static <K, V> V dereference(ValueReference<K, V> reference) {
+        if ( reference == null ) {
+            return null;
+        }
+
+        return reference.get();
+    }
+
+    /**
+     * Listener for entries purged from the map because their values were collected.
+     */
+    interface CollectionListener<K> {
+        void onCollected(K key);
+    }
+
+    /**
+     * Read-only view of the entries whose values have not been collected.
+     */
+    private class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            final Iterator<ValueReference<K, V>> referenceIterator = references.values().iterator();
+
+            return new Iterator<Map.Entry<K, V>>() {
+                private Map.Entry<K, V> nextEntry = this.advance();
+
+                @Override
+                public boolean hasNext() {
+                    return this.nextEntry != null;
+                }
+
+                @Override
+                public Map.Entry<K, V> next() {
+                    if ( this.nextEntry == null ) {
+                        throw new NoSuchElementException();
+                    }
+
+                    Map.Entry<K, V> result = this.nextEntry;
+                    this.nextEntry = this.advance();
+
+                    return result;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+
+                private Map.Entry<K, V> advance() {
+                    while ( referenceIterator.hasNext() ) {
+                        ValueReference<K, V> reference = referenceIterator.next();
+
+                        // Hold the value strongly in the entry so it cannot be collected while in use.
+                        V value = reference.get();
+                        if ( value != null ) {
+                            return new AbstractMap.SimpleImmutableEntry<>(reference.getKey(), value);
+                        }
+                    }
+
+                    return null;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return ReferenceValueMap.this.size();
+        }
+    }
+}
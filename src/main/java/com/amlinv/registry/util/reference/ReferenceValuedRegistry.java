@@ -0,0 +1,149 @@
+/*
+ *   Copyright 2015 AML Innovation & Consulting LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.amlinv.registry.util.reference;
+
+import com.amlinv.registry.util.ConcurrentRegistry;
+import com.amlinv.registry.util.RegistryListener;
+import com.amlinv.registry.util.listener.NotificationExecutor;
+import com.amlinv.registry.util.listener.SimpleSynchronousNotificationExecutor;
+
+import java.util.Iterator;
+
+/**
+ * Registry which holds its values through weak or soft references, so that entries for objects owned by other
+ * components disappear once those components release them, without the need to unregister them.
+ * <p>
+ * Entries whose values have been collected read as absent immediately.  They are purged from the registry the next
+ * time the registry is updated or purgeCollectedEntries() is called; registries which are rarely updated may call
+ * purgeCollectedEntries() periodically to bound the memory used by the collected entries.
+ * </p>
+ * <p>
+ * Purges are not reported through onRemoveEntry(), as the removed value is no longer available.  Listeners which
+ * need to know of them implement CollectedEntryListener as well as RegistryListener; these are called synchronously,
+ * bypassing the notification executor.
+ * </p>
+ */
+public class ReferenceValuedRegistry<K, V> extends ConcurrentRegistry<K, V> {
+    private final ReferenceValueMap<K, V> valueMap;
+
+    /**
+     * Create a new registry holding values through references of the given strength, using the default notification
+     * executor class, SimpleSynchronousNotificationExecutor.
+     *
+     * @param strength strength of the references through which values are held.
+     */
+    public ReferenceValuedRegistry(ReferenceStrength strength) {
+        this(strength, new SimpleSynchronousNotificationExecutor<K, V>());
+    }
+
+    /**
+     * Create a new registry holding values through references of the given strength, with the notification executor
+     * given.
+     *
+     * @param strength strength of the references through which values are held.
+     * @param notificationExecutor executor of notifications.
+     */
+    public ReferenceValuedRegistry(ReferenceStrength strength, NotificationExecutor<K, V> notificationExecutor) {
+        this(new ReferenceValueMap<K, V>(strength), notificationExecutor);
+    }
+
+    private ReferenceValuedRegistry(ReferenceValueMap<K, V> valueMap,
+                                    NotificationExecutor<K, V> notificationExecutor) {
+        super(valueMap, notificationExecutor);
+
+        this.valueMap = valueMap;
+        this.valueMap.setCollectionListener(new ReferenceValueMap.CollectionListener<K>() {
+            @Override
+            public void onCollected(K key) {
+                fireCollectedNotification(key);
+            }
+        });
+    }
+
+    /**
+     * Purge the entries whose values have been collected, notifying listeners of their removal.
+     *
+     * @return number of entries purged.
+     */
+    public int purgeCollectedEntries() {
+        int result = 0;
+
+        ValueReference<K, V> collected;
+        while ( ( collected = this.valueMap.pollCollected() ) != null ) {
+            Object keyLock = this.keyLock(collected.getKey());
+            if ( keyLock == null ) {
+                if ( this.valueMap.purgeCollected(collected) ) {
+                    result++;
+                }
+            } else {
+                synchronized ( keyLock ) {
+                    if ( this.valueMap.purgeCollected(collected) ) {
+                        result++;
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public V put(K putKey, V putValue) {
+        this.purgeCollectedEntries();
+
+        return super.put(putKey, putValue);
+    }
+
+    @Override
+    public V putIfAbsent(K putKey, V putValue) {
+        this.purgeCollectedEntries();
+
+        return super.putIfAbsent(putKey, putValue);
+    }
+
+    @Override
+    public V remove(K removeKey) {
+        this.purgeCollectedEntries();
+
+        return super.remove(removeKey);
+    }
+
+    @Override
+    public boolean remove(K removeKey, V removeValue) {
+        this.purgeCollectedEntries();
+
+        return super.remove(removeKey, removeValue);
+    }
+
+
+
+                                                 ////             ////
+                                                 ////  INTERNALS  ////
+                                                 ////             ////
+
+    @SuppressWarnings("unchecked")
+    private void fireCollectedNotification(K collectedKey) {
+        Iterator<RegistryListener<K, V>> iter = this.listenerIterator();
+        while ( iter.hasNext() ) {
+            RegistryListener<K, V> listener = iter.next();
+            if ( listener instanceof CollectedEntryListener ) {
+                ( (CollectedEntryListener<K>) listener ).onCollectedEntry(collectedKey);
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ *   Copyright 2015 AML Innovation & Consulting LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.amlinv.registry.util.sorted;
+
+import com.amlinv.registry.util.RegistryListener;
+import com.amlinv.registry.util.listener.NotificationExecutor;
+import com.amlinv.registry.util.listener.SimpleSynchronousNotificationExecutor;
+
+import java.util.SortedMap;
+
+/**
+ * Sorted registry with string keys forming a hierarchy, such as "tenant/service/instance", which supports efficient
+ * access to all of the entries under a prefix.  Prefixes are matched as plain strings, so the prefix for a subtree
+ * should include the trailing separator; for example, "tenant1/" rather than "tenant1", which also matches
+ * "tenant10/...".
+ */
+public class HierarchicalRegistry<V> extends SortedConcurrentRegistry<String, V> {
+    /**
+     * Create a new registry using the default notification executor class, SimpleSynchronousNotificationExecutor.
+     */
+    public HierarchicalRegistry() {
+        this(new SimpleSynchronousNotificationExecutor<String, V>());
+    }
+
+    /**
+     * Create a new registry with the notification executor given.
+     *
+     * @param notificationExecutor executor of notifications.
+     */
+    public HierarchicalRegistry(NotificationExecutor<String, V> notificationExecutor) {
+        super(notificationExecutor);
+    }
+
+    /**
+     * Return the range containing exactly the keys which start with the given prefix.
+     *
+     * @param prefix prefix of the keys in the range.
+     * @return range of keys starting with the prefix.
+     */
+    public static KeyRange<String> prefixRange(String prefix) {
+        //
+        // Every key starting with the prefix sorts before the prefix with its last character incremented, ignoring
+        //  trailing characters which cannot be incremented.
+        //
+        int end = prefix.length();
+        while ( ( end > 0 ) && ( prefix.charAt(end - 1) == Character.MAX_VALUE ) ) {
+            end--;
+        }
+
+        if ( end == 0 ) {
+            return KeyRange.atLeast(prefix);
+        }
+
+        String limit = prefix.substring(0, end - 1) + (char) ( prefix.charAt(end - 1) + 1 );
+
+        return KeyRange.between(prefix, limit);
+    }
+
+    /**
+     * Return a read-only, sorted view of the entries with keys starting with the given prefix.
+     *
+     * @param prefix prefix of the keys to include.
+     * @return sorted map view of the matching entries, backed by the registry.
+     */
+    public SortedMap<String, V> prefixScan(String prefix) {
+        return this.rangeMap(prefixRange(prefix));
+    }
+
+    /**
+     * Return a view of the registry limited to the keys starting with the given prefix.
+     *
+     * @param prefix prefix of the keys to include.
+     * @return sub-registry backed by this registry.
+     */
+    public RegistryRangeView<String, V> subRegistry(String prefix) {
+        return this.subRegistry(prefixRange(prefix));
+    }
+
+    /**
+     * Add a listener which is only notified of changes to entries with keys starting with the given prefix.
+     *
+     * @param prefix prefix of the keys for which to notify the listener.
+     * @param addListener listener to add.
+     */
+    public void addPrefixListener(String prefix, RegistryListener<String, V> addListener) {
+        this.addRangeListener(prefixRange(prefix), addListener);
+    }
+
+    /**
+     * Remove a listener previously added with addPrefixListener() for the same prefix.
+     *
+     * @param prefix prefix with which the listener was added.
+     * @param removeListener listener to remove.
+     */
+    public void removePrefixListener(String prefix, RegistryListener<String, V> removeListener) {
+        this.removeRangeListener(prefixRange(prefix), removeListener);
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ *   Copyright 2015 AML Innovation & Consulting LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.amlinv.registry.util.sorted;
+
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentNavigableMap;
+
+/**
+ * Range of keys, bounded or unbounded at either end, within a sorted registry.
+ */
+public final class KeyRange<K> {
+    private final K fromKey;
+    private final boolean fromInclusive;
+    private final K toKey;
+    private final boolean toInclusive;
+
+    /**
+     * Create a range of keys.
+     *
+     * @param fromKey low end of the range; null => unbounded.
+     * @param fromInclusive true => the range includes fromKey; false => otherwise.
+     * @param toKey high end of the range; null => unbounded.
+     * @param toInclusive true => the range includes toKey; false => otherwise.
+     */
+    public KeyRange(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+        this.fromKey = fromKey;
+        this.fromInclusive = fromInclusive;
+        this.toKey = toKey;
+        this.toInclusive = toInclusive;
+    }
+
+    /**
+     * Range of keys from fromKey, inclusive, to toKey, exclusive.
+     */
+    public static <K> KeyRange<K> between(K fromKey, K toKey) {
+        return new KeyRange<>(fromKey, true, toKey, false);
+    }
+
+    /**
+     * Range of all keys greater than or equal to fromKey.
+     */
+    public static <K> KeyRange<K> atLeast(K fromKey) {
+        return new KeyRange<>(fromKey, true, null, false);
+    }
+
+    /**
+     * Range of all keys less than toKey.
+     */
+    public static <K> KeyRange<K> lessThan(K toKey) {
+        return new KeyRange<>(null, false, toKey, false);
+    }
+
+    public K getFromKey() {
+        return fromKey;
+    }
+
+    public boolean isFromInclusive() {
+        return fromInclusive;
+    }
+
+    public K getToKey() {
+        return toKey;
+    }
+
+    public boolean isToInclusive() {
+        return toInclusive;
+    }
+
+    /**
+     * Determine whether the given key falls within this range.
+     *
+     * @param key key to check.
+     * @param comparator comparator ordering the keys; null => natural ordering.
+     * @return true => if the key is in the range; false => otherwise.
+     */
+    public boolean contains(K key, Comparator<? super K> comparator) {
+        if ( this.fromKey != null ) {
+            int comparison = compare(this.fromKey, key, comparator);
+            if ( ( comparison > 0 ) || ( ( comparison == 0 ) && ( ! this.fromInclusive ) ) ) {
+                return false;
+            }
+        }
+
+        if ( this.toKey != null ) {
+            int comparison = compare(key, this.toKey, comparator);
+            if ( ( comparison > 0 ) || ( ( comparison == 0 ) && ( ! this.toInclusive ) ) ) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Return the view of the given map limited to this range.
+     *
+     * @param map map for which to create the view.
+     * @return view of the map, backed by the map, containing only the keys in this range.
+     */
+    public <V> ConcurrentNavigableMap<K, V> subMap(ConcurrentNavigableMap<K, V> map) {
+        if ( ( this.fromKey != null ) && ( this.toKey != null ) ) {
+            return map.subMap(this.fromKey, this.fromInclusive, this.toKey, this.toInclusive);
+        } else if ( this.fromKey != null ) {
+            return map.tailMap(this.fromKey, this.fromInclusive);
+        } else if ( this.toKey != null ) {
+            return map.headMap(this.toKey, this.toInclusive);
+        }
+
+        return map;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if ( this == other ) {
+            return true;
+        }
+        if ( ! ( other instanceof KeyRange ) ) {
+            return false;
+        }
+
+        KeyRange<?> otherRange = (KeyRange<?>) other;
+
+        return ( this.fromInclusive == otherRange.fromInclusive ) && ( this.toInclusive == otherRange.toInclusive ) &&
+               ( this.fromKey == null ? otherRange.fromKey == null : this.fromKey.equals(otherRange.fromKey) ) &&
+               ( this.toKey == null ? otherRange.toKey == null : this.toKey.equals(otherRange.toKey) );
+    }
+
+    @Override
+    public int hashCode() {
+        int result = ( this.fromKey == null ? 0 : this.fromKey.hashCode() );
+        result = 31 * result + ( this.fromInclusive ? 1 : 0 );
+        result = 31 * result + ( this.toKey == null ? 0 : this.toKey.hashCode() );
+        result = 31 * result + ( this.toInclusive ? 1 : 0 );
+
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return ( this.fromInclusive ? "[" : "(" ) + ( this.fromKey == null ? "" : this.fromKey ) + ", " +
+               ( this.toKey == null ? "" : this.toKey ) + ( this.toInclusive ? "]" : ")" );
+    }
+
+
+                                                 ////             ////
+                                                 ////  INTERNALS  ////
+                                                 ////             ////
+
+    @SuppressWarnings("unchecked")
+    private static <K> int compare(K first, K second, Comparator<? super K> comparator) {
+        if ( comparator != null ) {
+            return comparator.compare(first, second);
+        }
+
+        return ( (Comparable<? super K>) first ).compareTo(second);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ *   Copyright 2015 AML Innovation & Consulting LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.amlinv.registry.util.sorted;
+
+import com.amlinv.registry.util.RegistryListener;
+
+import java.util.Comparator;
+
+/**
+ * Listener which passes on only the notifications for keys within a range to another listener.  Two filtered
+ * listeners are equal when they have the same range and target listener, so a filtered listener can be removed from
+ * a registry using an equivalent instance.
+ */
+public class RangeFilteredRegistryListener<K, V> implements RegistryListener<K, V> {
+    private final RegistryListener<K, V> target;
+    private final KeyRange<K> range;
+    private final Comparator<? super K> comparator;
+
+    /**
+     * Create a filtered listener.
+     *
+     * @param target listener which receives the notifications for keys within the range.
+     * @param range range of keys for which to pass notifications.
+     * @param comparator comparator ordering the keys; null => natural ordering.
+     */
+    public RangeFilteredRegistryListener(RegistryListener<K, V> target, KeyRange<K> range,
+                                         Comparator<? super K> comparator) {
+        this.target = target;
+        this.range = range;
+        this.comparator = comparator;
+    }
+
+    public RegistryListener<K, V> getTarget() {
+        return target;
+    }
+
+    public KeyRange<K> getRange() {
+        return range;
+    }
+
+    @Override
+    public void onPutEntry(K putKey, V putValue) {
+        if ( this.range.contains(putKey, this.comparator) ) {
+            this.target.onPutEntry(putKey, putValue);
+        }
+    }
+
+    @Override
+    public void onRemoveEntry(K removeKey, V removeValue) {
+        if ( this.range.contains(removeKey, this.comparator) ) {
+            this.target.onRemoveEntry(removeKey, removeValue);
+        }
+    }
+
+    @Override
+    public void onReplaceEntry(K replaceKey, V oldValue, V newValue) {
+        if ( this.range.contains(replaceKey, this.comparator) ) {
+            this.target.onReplaceEntry(replaceKey, oldValue, newValue);
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if ( this == other ) {
+            return true;
+        }
+        if ( ! ( other instanceof RangeFilteredRegistryListener ) ) {
+            return false;
+        }
+
+        RangeFilteredRegistryListener<?, ?> otherListener = (RangeFilteredRegistryListener<?, ?>) other;
+
+        return this.target.equals(otherListener.target) && this.range.equals(otherListener.range);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * this.target.hashCode() + this.range.hashCode();
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ *   Copyright 2015 AML Innovation & Consulting LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.amlinv.registry.util.sorted;
+
+import com.amlinv.registry.util.RegistryListener;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+
+/**
+ * View of the entries of a sorted registry within a range of keys.  Reads, scans, and listeners are limited to the
+ * range; updates are applied to the underlying registry and notify all of its listeners as usual.  Keys in the view
+ * are the same as the keys in the underlying registry.
+ */
+public class RegistryRangeView<K, V> {
+    private final SortedConcurrentRegistry<K, V> registry;
+    private final KeyRange<K> range;
+    private final ConcurrentNavigableMap<K, V> rangeStore;
+
+    /**
+     * Create a view of the given registry limited to the range given.
+     *
+     * @param registry registry backing the view.
+     * @param range range of keys included in the view.
+     */
+    public RegistryRangeView(SortedConcurrentRegistry<K, V> registry, KeyRange<K> range) {
+        this.registry = registry;
+        this.range = range;
+        this.rangeStore = range.subMap(registry.getSortedStore());
+    }
+
+    public SortedConcurrentRegistry<K, V> getRegistry() {
+        return registry;
+    }
+
+    public KeyRange<K> getRange() {
+        return range;
+    }
+
+    /**
+     * Add a listener which is only notified of changes to entries in this view.
+     *
+     * @param addListener listener to add.
+     */
+    public void addListener(RegistryListener<K, V> addListener) {
+        this.registry.addRangeListener(this.range, addListener);
+    }
+
+    /**
+     * Remove a listener added through this view, or another view of the same range.
+     *
+     * @param removeListener listener to remove.
+     */
+    public void removeListener(RegistryListener<K, V> removeListener) {
+        this.registry.removeRangeListener(this.range, removeListener);
+    }
+
+    /**
+     * Return the entry in the view identified by the given key.
+     *
+     * @param key identifier of the entry.
+     * @return entry in the registry, if known and within the range of this view; null otherwise.
+     */
+    public V get(K key) {
+        if ( ! this.inRange(key) ) {
+            return null;
+        }
+
+        return this.registry.get(key);
+    }
+
+    /**
+     * Determine if the given key is in this view.
+     *
+     * @param key key to verify.
+     * @return true => if the key is within the range of this view and exists in the registry; false => otherwise.
+     */
+    public boolean containsKey(K key) {
+        return this.inRange(key) && this.registry.containsKey(key);
+    }
+
+    /**
+     * Put the given entry into the underlying registry.
+     *
+     * @param putKey key of the entry; must be within the range of this view.
+     * @param putValue value of the entry.
+     * @return previous value for the key; null if there was none.
+     * @throws IllegalArgumentException if the key is outside the range of this view.
+     */
+    public V put(K putKey, V putValue) {
+        this.checkRange(putKey);
+
+        return this.registry.put(putKey, putValue);
+    }
+
+    /**
+     * Add the given entry into the underlying registry, if the key is not already registered.
+     *
+     * @param putKey key of the entry; must be within the range of this view.
+     * @param putValue value of the entry.
+     * @return existing value in the registry if already defined; null if the new value is added to the registry.
+     * @throws IllegalArgumentException if the key is outside the range of this view.
+     */
+    public V putIfAbsent(K putKey, V putValue) {
+        this.checkRange(putKey);
+
+        return this.registry.putIfAbsent(putKey, putValue);
+    }
+
+    /**
+     * Remove the given entry from the underlying registry, if it is within the range of this view.
+     *
+     * @param removeKey key of the entry to be removed.
+     * @return value of the removed entry; null if no value was removed.
+     */
+    public V remove(K removeKey) {
+        if ( ! this.inRange(removeKey) ) {
+            return null;
+        }
+
+        return this.registry.remove(removeKey);
+    }
+
+    /**
+     * Remove the given entry from the underlying registry, if it is within the range of this view and the value
+     * matches the one given.
+     *
+     * @param removeKey key of the entry to be removed.
+     * @param removeValue value of the entry to be removed.
+     * @return true => if the value was removed; false => otherwise.
+     */
+    public boolean remove(K removeKey, V removeValue) {
+        return this.inRange(removeKey) && this.registry.remove(removeKey, removeValue);
+    }
+
+    /**
+     * Return a read-only view of the keys in this view, in sorted order.
+     *
+     * @return unmodifiable set of the keys, backed by the registry.
+     */
+    public Set<K> keys() {
+        return Collections.unmodifiableSet(this.rangeStore.keySet());
+    }
+
+    /**
+     * Return a read-only view of the values in this view, in the order of their keys.
+     *
+     * @return unmodifiable collection of the values, backed by the registry.
+     */
+    public Collection<V> values() {
+        return Collections.unmodifiableCollection(this.rangeStore.values());
+    }
+
+    /**
+     * Return a read-only, sorted view of the content of this view as a map.
+     *
+     * @return unmodifiable map, backed by the registry.
+     */
+    public SortedMap<K, V> asMap() {
+        return Collections.unmodifiableSortedMap(this.rangeStore);
+    }
+
+
+                                                 ////             ////
+                                                 ////  INTERNALS  ////
+                                                 ////             ////
+
+    private boolean inRange(K key) {
+        return this.range.contains(key, this.registry.comparator());
+    }
+
+    private void checkRange(K key) {
+        if ( ! this.inRange(key) ) {
+            throw new IllegalArgumentException("key is outside the range of the registry view: key=" + key +
+                    "; range=" + this.range);
+        }
+    }
+}
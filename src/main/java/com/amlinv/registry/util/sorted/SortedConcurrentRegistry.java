@@ -0,0 +1,162 @@
+/*
+ *   Copyright 2015 AML Innovation & Consulting LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.amlinv.registry.util.sorted;
+
+import com.amlinv.registry.util.ConcurrentRegistry;
+import com.amlinv.registry.util.RegistryListener;
+import com.amlinv.registry.util.listener.NotificationExecutor;
+import com.amlinv.registry.util.listener.SimpleSynchronousNotificationExecutor;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Registry which keeps its entries sorted by key, backed by a concurrent skip list, so that ranges of keys can be
+ * viewed and scanned in O(log n + k) time for k matching entries, rather than by scanning the entire registry.
+ * Listeners may be scoped to a range of keys.
+ * <p>
+ * Key-ordered notification locks by the hash code of the key, which only identifies the same keys as the skip list
+ * when the ordering is consistent with equals.  It is therefore rejected for registries using a comparator, and
+ * requires keys whose natural ordering is consistent with equals.
+ * </p>
+ */
+public class SortedConcurrentRegistry<K, V> extends ConcurrentRegistry<K, V> {
+    private final ConcurrentNavigableMap<K, V> sortedStore;
+
+    /**
+     * Create a new registry, ordered by the natural ordering of the keys, using the default notification executor
+     * class, SimpleSynchronousNotificationExecutor.
+     */
+    public SortedConcurrentRegistry() {
+        this(new SimpleSynchronousNotificationExecutor<K, V>());
+    }
+
+    /**
+     * Create a new registry, ordered by the natural ordering of the keys, with the notification executor given.
+     *
+     * @param notificationExecutor executor of notifications.
+     */
+    public SortedConcurrentRegistry(NotificationExecutor<K, V> notificationExecutor) {
+        this(new ConcurrentSkipListMap<K, V>(), notificationExecutor);
+    }
+
+    /**
+     * Create a new registry, ordered by the given comparator, with the notification executor given.
+     *
+     * @param comparator comparator used to order the keys.
+     * @param notificationExecutor executor of notifications.
+     */
+    public SortedConcurrentRegistry(Comparator<? super K> comparator,
+                                    NotificationExecutor<K, V> notificationExecutor) {
+        this(new ConcurrentSkipListMap<K, V>(comparator), notificationExecutor);
+    }
+
+    private SortedConcurrentRegistry(ConcurrentNavigableMap<K, V> sortedStore,
+                                     NotificationExecutor<K, V> notificationExecutor) {
+        super(sortedStore, notificationExecutor);
+
+        this.sortedStore = sortedStore;
+    }
+
+    /**
+     * Return the comparator ordering the keys of the registry.
+     *
+     * @return comparator in use; null if the natural ordering of the keys is used.
+     */
+    public Comparator<? super K> comparator() {
+        return this.sortedStore.comparator();
+    }
+
+    /**
+     * Enable or disable key-ordered notification; see ConcurrentRegistry.  Not supported for registries ordered by a
+     * comparator, since keys which the comparator treats as equal may have different hash codes and would then not
+     * be ordered.
+     *
+     * @param keyOrderedNotification true => notify changes to each key in order; false => otherwise.
+     * @throws UnsupportedOperationException if enabling key-ordered notification on a registry with a comparator.
+     */
+    @Override
+    public void setKeyOrderedNotification(boolean keyOrderedNotification) {
+        if ( keyOrderedNotification && ( this.comparator() != null ) ) {
+            throw new UnsupportedOperationException("key-ordered notification is not supported with a comparator");
+        }
+
+        super.setKeyOrderedNotification(keyOrderedNotification);
+    }
+
+    /**
+     * Return a read-only, sorted view of the content of the registry.
+     *
+     * @return sorted map view of the registry which is backed by the registry.
+     */
+    public SortedMap<K, V> asSortedMap() {
+        return Collections.unmodifiableSortedMap(this.sortedStore);
+    }
+
+    /**
+     * Return a read-only, sorted view of the entries in the registry within the given range.
+     *
+     * @param range range of keys to include in the view.
+     * @return sorted map view of the range which is backed by the registry.
+     */
+    public SortedMap<K, V> rangeMap(KeyRange<K> range) {
+        return Collections.unmodifiableSortedMap(range.subMap(this.sortedStore));
+    }
+
+    /**
+     * Return a view of the registry limited to the given range, which supports listeners scoped to the range.
+     *
+     * @param range range of keys to include in the sub-registry.
+     * @return sub-registry backed by this registry.
+     */
+    public RegistryRangeView<K, V> subRegistry(KeyRange<K> range) {
+        return new RegistryRangeView<>(this, range);
+    }
+
+    /**
+     * Add a listener which is only notified of changes to entries with keys in the given range.
+     *
+     * @param range range of keys for which to notify the listener.
+     * @param addListener listener to add.
+     */
+    public void addRangeListener(KeyRange<K> range, RegistryListener<K, V> addListener) {
+        this.addListener(new RangeFilteredRegistryListener<>(addListener, range, this.comparator()));
+    }
+
+    /**
+     * Remove a listener previously added with addRangeListener() for the same range.
+     *
+     * @param range range of keys with which the listener was added.
+     * @param removeListener listener to remove.
+     */
+    public void removeRangeListener(KeyRange<K> range, RegistryListener<K, V> removeListener) {
+        this.removeListener(new RangeFilteredRegistryListener<>(removeListener, range, this.comparator()));
+    }
+
+
+                                                 ////             ////
+                                                 ////  INTERNALS  ////
+                                                 ////             ////
+
+    ConcurrentNavigableMap<K, V> getSortedStore() {
+        return sortedStore;
+    }
+}
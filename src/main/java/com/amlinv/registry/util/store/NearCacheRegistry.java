@@ -0,0 +1,532 @@
+/*
+ *   Copyright 2015 AML Innovation & Consulting LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.amlinv.registry.util.store;
+
+import com.amlinv.registry.util.ConcurrentRegistry;
+import com.amlinv.registry.util.listener.NotificationExecutor;
+import com.amlinv.registry.util.listener.SimpleSynchronousNotificationExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Registry which acts as a near cache in front of a slower backing store.  Misses read through to the store using
+ * the configured loader, with concurrent misses on the same key coalesced into a single load.  Local changes are
+ * applied to the registry immediately, with listeners notified as usual, and written behind to the store in batches
+ * by the configured writer.
+ * <p>
+ * Dirty entries are flushed asynchronously once the number of dirty entries reaches the batch size, and periodically
+ * at the flush interval.  Asynchronous flushing begins with start() and ends with shutdown(), which performs a final
+ * flush.  A flush may also be requested at any time using flush().
+ * </p>
+ * <p>
+ * Entries loaded from the backing store are added to the registry, and reported to listeners, as puts; they are not
+ * written back to the store.
+ * </p>
+ * <p>
+ * Listeners are notified without holding any of the registry's locks, so they may use the registry freely, including
+ * updating or reading through other keys.  With key-ordered notification enabled, a load holds the key's lock until
+ * its put is notified, and the restrictions on listeners described by setKeyOrderedNotification() apply.
+ * </p>
+ */
+public class NearCacheRegistry<K, V> extends ConcurrentRegistry<K, V> {
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 1000L;
+
+    private static final Logger LOG = LoggerFactory.getLogger(NearCacheRegistry.class);
+
+    private final RegistryLoader<K, V> loader;
+    private final RegistryWriter<K, V> writer;
+
+    private final WriteBehindMap<K, V> store;
+    private final ConcurrentHashMap<K, ReadThroughLoad> loadsInProgress = new ConcurrentHashMap<>();
+    private final AtomicBoolean sizeTriggeredFlushPending = new AtomicBoolean(false);
+    private final Object flushLock = new Object();
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private long flushIntervalMs = DEFAULT_FLUSH_INTERVAL_MS;
+
+    private ScheduledExecutorService scheduler;
+    private volatile ScheduledExecutorService activeScheduler;
+    private ScheduledFuture<?> periodicFlushFuture;
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            sizeTriggeredFlushPending.set(false);
+            flushQuietly();
+        }
+    };
+
+    /**
+     * Create a new near cache registry using the default notification executor class,
+     * SimpleSynchronousNotificationExecutor.
+     *
+     * @param loader loader used to read through to the backing store on a miss.
+     * @param writer writer used to write local changes behind to the backing store.
+     */
+    public NearCacheRegistry(RegistryLoader<K, V> loader, RegistryWriter<K, V> writer) {
+        this(new SimpleSynchronousNotificationExecutor<K, V>(), loader, writer);
+    }
+
+    /**
+     * Create a new near cache registry with the notification executor given.
+     *
+     * @param notificationExecutor executor of notifications.
+     * @param loader loader used to read through to the backing store on a miss.
+     * @param writer writer used to write local changes behind to the backing store.
+     */
+    public NearCacheRegistry(NotificationExecutor<K, V> notificationExecutor, RegistryLoader<K, V> loader,
+                             RegistryWriter<K, V> writer) {
+        this(new WriteBehindMap<K, V>(), notificationExecutor, loader, writer);
+    }
+
+    private NearCacheRegistry(WriteBehindMap<K, V> store, NotificationExecutor<K, V> notificationExecutor,
+                              RegistryLoader<K, V> loader, RegistryWriter<K, V> writer) {
+        super(store, notificationExecutor);
+
+        if ( ( loader == null ) || ( writer == null ) ) {
+            throw new IllegalArgumentException("loader and writer are required");
+        }
+
+        this.store = store;
+        this.loader = loader;
+        this.writer = writer;
+
+        this.store.setRemovalListener(new WriteBehindMap.RemovalListener<K>() {
+            @Override
+            public void onRemoved(K key) {
+                invalidateLoad(key);
+            }
+        });
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Set the number of dirty entries which triggers an asynchronous flush.
+     *
+     * @param batchSize number of dirty entries at which to flush; must be positive.
+     */
+    public void setBatchSize(int batchSize) {
+        if ( batchSize <= 0 ) {
+            throw new IllegalArgumentException("batch size must be positive: " + batchSize);
+        }
+
+        this.batchSize = batchSize;
+    }
+
+    public long getFlushIntervalMs() {
+        return flushIntervalMs;
+    }
+
+    /**
+     * Set the interval between periodic flushes; takes effect on the next call to start().
+     *
+     * @param flushIntervalMs period, in milliseconds, between flushes; 0 disables periodic flushing.
+     */
+    public void setFlushIntervalMs(long flushIntervalMs) {
+        if ( flushIntervalMs < 0 ) {
+            throw new IllegalArgumentException("flush interval must not be negative: " + flushIntervalMs);
+        }
+
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    /**
+     * Set the scheduler used for asynchronous flushes; when not set, start() creates a single, daemon thread for the
+     * purpose.  The given scheduler is not shut down by shutdown().
+     *
+     * @param scheduler scheduler on which to run flushes.
+     */
+    public void setScheduler(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Determine the number of local changes not yet written to the backing store.
+     *
+     * @return number of dirty entries.
+     */
+    public int getDirtyCount() {
+        return this.store.getDirtyCount();
+    }
+
+    /**
+     * Start asynchronous flushing of dirty entries.
+     */
+    public synchronized void start() {
+        if ( this.activeScheduler != null ) {
+            return;
+        }
+
+        ScheduledExecutorService startScheduler = this.scheduler;
+        if ( startScheduler == null ) {
+            startScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread result = new Thread(runnable, "near-cache-registry-flush");
+                    result.setDaemon(true);
+                    return result;
+                }
+            });
+        }
+
+        this.activeScheduler = startScheduler;
+
+        if ( this.flushIntervalMs > 0 ) {
+            this.periodicFlushFuture = startScheduler.scheduleWithFixedDelay(this.flushTask, this.flushIntervalMs,
+                    this.flushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stop asynchronous flushing and flush any remaining dirty entries to the backing store.
+     *
+     * @throws RegistryStoreException if the final flush fails; the failed entries remain dirty.
+     */
+    public synchronized void shutdown() {
+        if ( this.periodicFlushFuture != null ) {
+            this.periodicFlushFuture.cancel(false);
+            this.periodicFlushFuture = null;
+        }
+
+        ScheduledExecutorService stopScheduler = this.activeScheduler;
+        this.activeScheduler = null;
+        if ( ( stopScheduler != null ) && ( stopScheduler != this.scheduler ) ) {
+            stopScheduler.shutdown();
+        }
+
+        this.flush();
+    }
+
+    /**
+     * Return the entry in the registry identified by the given key, loading it from the backing store if it is not
+     * already in the registry.  Concurrent misses on the same key share a single load.
+     *
+     * @param key identifier of the entry in the registry.
+     * @return entry in the registry, if known locally or in the backing store; null otherwise.
+     * @throws RegistryStoreException if the entry is not known locally and loading it fails.
+     */
+    @Override
+    public V get(K key) {
+        V result = super.get(key);
+
+        if ( result == null ) {
+            result = this.readThrough(key);
+        }
+
+        return result;
+    }
+
+    /**
+     * Determine if the given key is in the registry, reading through to the backing store if needed.
+     *
+     * @param key key to verify in the registry.
+     * @return true => if the key exists in the registry or the backing store; false => otherwise.
+     */
+    @Override
+    public boolean containsKey(K key) {
+        return this.get(key) != null;
+    }
+
+    /**
+     * Put the given entry into the registry under the specified key, and queue it for writing to the backing store.
+     *
+     * @param putKey key of the entry to store.
+     * @param putValue value of the entry to store.
+     * @return value previously held locally under the key; null if there was none.
+     */
+    @Override
+    public V put(K putKey, V putValue) {
+        V oldValue = super.put(putKey, putValue);
+
+        this.requestFlushIfFull();
+
+        return oldValue;
+    }
+
+    /**
+     * Add the given entry into the registry under the specified key, but only if the key is not already registered
+     * locally or in the backing store.  A newly-added entry is queued for writing to the backing store.
+     *
+     * @param putKey key identifying the entry in the registry to add, if it does not already exist.
+     * @param putValue value to add to the registry.
+     * @return existing value in the registry if already defined; null if the new value is added to the registry.
+     */
+    @Override
+    public V putIfAbsent(K putKey, V putValue) {
+        V existingValue = this.get(putKey);
+
+        if ( existingValue == null ) {
+            existingValue = super.putIfAbsent(putKey, putValue);
+
+            this.requestFlushIfFull();
+        }
+
+        return existingValue;
+    }
+
+    /**
+     * Remove the given entry from the registry under the specified key, and queue the removal for the backing store.
+     * The removal is queued even when the entry is not held locally, so that it is also removed from the store.
+     *
+     * @param removeKey key of the entry to be removed.
+     * @return value of the removed local entry; null if no local value was removed.
+     */
+    @Override
+    public V remove(K removeKey) {
+        V removedValue = super.remove(removeKey);
+
+        this.requestFlushIfFull();
+
+        return removedValue;
+    }
+
+    /**
+     * Remove the given entry from the registry under the specified key, only if the local value matches the one
+     * given.  A successful removal is queued for the backing store.
+     *
+     * @param removeKey key of the entry to be removed.
+     * @param removeValue value of the entry to be removed.
+     * @return true => if the value was removed; false => otherwise.
+     */
+    @Override
+    public boolean remove(K removeKey, V removeValue) {
+        boolean removedInd = super.remove(removeKey, removeValue);
+
+        if ( removedInd ) {
+            this.requestFlushIfFull();
+        }
+
+        return removedInd;
+    }
+
+    /**
+     * Write all dirty entries to the backing store in a single batch.  Only one flush runs at a time so batches
+     * reach the writer in the order the changes were made.
+     *
+     * @throws RegistryStoreException if the writer fails; the entire batch remains dirty and is retried by the next
+     * flush.
+     */
+    public void flush() {
+        synchronized ( this.flushLock ) {
+            Map<K, WriteBehindMap.PendingWrite<V>> batch = this.store.copyDirtyEntries();
+            if ( batch.isEmpty() ) {
+                return;
+            }
+
+            Map<K, V> updates = new HashMap<>();
+            Set<K> removals = new HashSet<>();
+            for ( Map.Entry<K, WriteBehindMap.PendingWrite<V>> oneEntry : batch.entrySet() ) {
+                if ( oneEntry.getValue().isRemoval() ) {
+                    removals.add(oneEntry.getKey());
+                } else {
+                    updates.put(oneEntry.getKey(), oneEntry.getValue().getValue());
+                }
+            }
+
+            try {
+                this.writer.writeAll(updates, removals);
+            } catch ( Exception exc ) {
+                throw new RegistryStoreException("failed to write " + batch.size() + " dirty entries", exc);
+            }
+
+            //
+            // Only clear entries which were not changed again during the write; identity comparison of the pending
+            //  writes keeps newer changes dirty.
+            //
+            for ( Map.Entry<K, WriteBehindMap.PendingWrite<V>> oneEntry : batch.entrySet() ) {
+                this.store.clearDirtyEntry(oneEntry.getKey(), oneEntry.getValue());
+            }
+        }
+    }
+
+
+                                                 ////             ////
+                                                 ////  INTERNALS  ////
+                                                 ////             ////
+
+    private V readThrough(K key) {
+        ReadThroughLoad load;
+        boolean startLoad = false;
+
+        //
+        // Decide whether to load under the write lock so that any removal of the key either happens first, and is
+        //  seen here, or happens later and invalidates the load.
+        //
+        synchronized ( this.store.writeLock(key) ) {
+            V localValue = this.store.get(key);
+            if ( localValue != null ) {
+                return localValue;
+            }
+
+            if ( this.store.isPendingRemoval(key) ) {
+                return null;
+            }
+
+            load = this.loadsInProgress.get(key);
+            if ( load == null ) {
+                load = new ReadThroughLoad(key);
+                this.loadsInProgress.put(key, load);
+                startLoad = true;
+            }
+        }
+
+        if ( startLoad ) {
+            this.runLoad(load);
+        }
+
+        try {
+            return load.future.get();
+        } catch ( InterruptedException intExc ) {
+            Thread.currentThread().interrupt();
+            throw new RegistryStoreException("interrupted waiting to load key " + key, intExc);
+        } catch ( ExecutionException execExc ) {
+            throw new RegistryStoreException("failed to load key " + key, execExc.getCause());
+        }
+    }
+
+    /**
+     * Run the given load and notify listeners of the value it added, if any, after the load completes so that any
+     * listener reading the key through again, or waiting on the load from another thread, does not wait on itself.
+     * With key-ordered notification, the key's lock is held until the put is notified so that it is ordered with the
+     * other changes to the key.
+     */
+    private void runLoad(ReadThroughLoad load) {
+        Object keyLock = this.keyLock(load.key);
+        if ( keyLock == null ) {
+            load.future.run();
+            this.notifyLoaded(load);
+        } else {
+            synchronized ( keyLock ) {
+                load.future.run();
+                this.notifyLoaded(load);
+            }
+        }
+    }
+
+    private void notifyLoaded(ReadThroughLoad load) {
+        if ( load.addedValue != null ) {
+            this.getNotificationExecutor().firePutNotification(this.listenerIterator(), load.key, load.addedValue);
+        }
+    }
+
+    /**
+     * Prevent an in-progress load of the given key from adding its, now stale, result to the registry; called by the
+     * store while holding the write lock for the removed key.
+     */
+    private void invalidateLoad(K key) {
+        ReadThroughLoad load = this.loadsInProgress.get(key);
+        if ( load != null ) {
+            load.invalidated = true;
+        }
+    }
+
+    private void requestFlushIfFull() {
+        ScheduledExecutorService flushScheduler = this.activeScheduler;
+        if ( ( flushScheduler != null ) && ( this.store.getDirtyCount() >= this.batchSize ) &&
+             ( this.sizeTriggeredFlushPending.compareAndSet(false, true) ) ) {
+
+            try {
+                flushScheduler.execute(this.flushTask);
+            } catch ( RejectedExecutionException rejectedExc ) {
+                // Scheduler is shutting down; the entries stay dirty for the final, or next explicit, flush.
+                this.sizeTriggeredFlushPending.set(false);
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            this.flush();
+        } catch ( RuntimeException rtExc ) {
+            LOG.warn("asynchronous flush of near cache registry failed; will retry", rtExc);
+        }
+    }
+
+    /**
+     * Load of a single key from the backing store, shared by all of the concurrent misses on the key.  The result is
+     * added to the registry, unless the key was removed locally while loading, before the load completes, so every
+     * caller sees the same outcome.  Listeners are notified of the added value by the thread running the load.
+     */
+    private final class ReadThroughLoad implements Callable<V> {
+        private final K key;
+        private final FutureTask<V> future = new FutureTask<>(this);
+        private volatile boolean invalidated;
+
+        // Only accessed by the thread running the load.
+        private V addedValue;
+
+        private ReadThroughLoad(K key) {
+            this.key = key;
+        }
+
+        @Override
+        public V call() throws Exception {
+            V loaded;
+            try {
+                loaded = loader.load(this.key);
+            } catch ( Throwable thrown ) {
+                synchronized ( store.writeLock(this.key) ) {
+                    loadsInProgress.remove(this.key, this);
+                }
+
+                throw thrown;
+            }
+
+            synchronized ( store.writeLock(this.key) ) {
+                loadsInProgress.remove(this.key, this);
+
+                if ( this.invalidated ) {
+                    // Removed while loading; the local state, possibly a newer put, is authoritative.
+                    return store.get(this.key);
+                }
+
+                if ( loaded == null ) {
+                    return null;
+                }
+
+                V existingValue = store.putLoaded(this.key, loaded);
+                if ( existingValue != null ) {
+                    return existingValue;
+                }
+
+                this.addedValue = loaded;
+                return loaded;
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ *   Copyright 2015 AML Innovation & Consulting LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.amlinv.registry.util.store;
+
+/**
+ * Source of registry entries which are not yet held in memory; used by the near cache registry to read through to
+ * a slower backing store on a miss.
+ */
+public interface RegistryLoader<K, V> {
+    /**
+     * Load the value for the given key from the backing store.
+     *
+     * @param key key identifying the entry to load.
+     * @return value of the entry in the backing store; null if the backing store has no such entry.
+     * @throws Exception on failure to read the backing store.
+     */
+    V load(K key) throws Exception;
+}
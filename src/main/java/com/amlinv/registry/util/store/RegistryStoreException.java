@@ -0,0 +1,33 @@
+/*
+ *   Copyright 2015 AML Innovation & Consulting LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.amlinv.registry.util.store;
+
+/**
+ * Failure to read from, or write to, the backing store of a registry.
+ */
+public class RegistryStoreException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public RegistryStoreException(String message) {
+        super(message);
+    }
+
+    public RegistryStoreException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
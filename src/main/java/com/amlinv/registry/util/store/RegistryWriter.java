@@ -0,0 +1,37 @@
+/*
+ *   Copyright 2015 AML Innovation & Consulting LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.amlinv.registry.util.store;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Destination of registry changes made locally; used by the near cache registry to write batches of dirty entries
+ * behind to a slower backing store.
+ */
+public interface RegistryWriter<K, V> {
+    /**
+     * Write a batch of changes to the backing store.  A key appears in at most one of the given collections.
+     *
+     * @param updates entries added or replaced since the last successful write.
+     * @param removals keys of entries removed since the last successful write.
+     * @throws Exception on failure to write the backing store; the entire batch is retained and retried on the next
+     * flush.
+     */
+    void writeAll(Map<K, V> updates, Set<K> removals) throws Exception;
+}
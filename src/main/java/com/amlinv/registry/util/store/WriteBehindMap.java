@@ -0,0 +1,247 @@
+/*
+ *   Copyright 2015 AML Innovation & Consulting LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.amlinv.registry.util.store;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Concurrent map which records every change made through it as a dirty entry to be written behind to a backing
+ * store.  Each change and its dirty entry are made while holding a lock striped by key, held only for the duration
+ * of the map operation, so the dirty entry for a key always reflects the last change made to it.  Values loaded from
+ * the backing store are added with putLoaded(), which does not mark them dirty.
+ */
+class WriteBehindMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+    /**
+     * Number of locks across which keys are spread; a power of 2.
+     */
+    private static final int WRITE_LOCK_STRIPES = 64;
+
+    private final ConcurrentHashMap<K, V> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<K, PendingWrite<V>> dirtyEntries = new ConcurrentHashMap<>();
+    private final Object[] writeLocks = new Object[WRITE_LOCK_STRIPES];
+
+    private RemovalListener<K> removalListener;
+
+    public WriteBehindMap() {
+        for ( int cur = 0; cur < this.writeLocks.length; cur++ ) {
+            this.writeLocks[cur] = new Object();
+        }
+    }
+
+    public void setRemovalListener(RemovalListener<K> removalListener) {
+        this.removalListener = removalListener;
+    }
+
+    /**
+     * Return the lock held while changing the given key; callers may hold it to make decisions which must be atomic
+     * with respect to changes of the key.  No other locks may be acquired while holding it.
+     *
+     * @param key key for which to obtain the lock.
+     * @return lock for the key.
+     */
+    public Object writeLock(Object key) {
+        int hash = key.hashCode();
+        hash ^= ( hash >>> 16 );
+
+        return this.writeLocks[hash & ( this.writeLocks.length - 1 )];
+    }
+
+    /**
+     * Add a value loaded from the backing store, without marking it dirty, if the key is not already present.
+     *
+     * @param key key of the loaded entry.
+     * @param value value loaded from the store.
+     * @return existing value for the key; null if the loaded value was added.
+     */
+    public V putLoaded(K key, V value) {
+        synchronized ( this.writeLock(key) ) {
+            return this.entries.putIfAbsent(key, value);
+        }
+    }
+
+    public int getDirtyCount() {
+        return this.dirtyEntries.size();
+    }
+
+    /**
+     * Determine whether the last change to the given key, not yet written to the store, is its removal.
+     *
+     * @param key key to check.
+     * @return true => if a removal of the key is waiting to be written; false => otherwise.
+     */
+    public boolean isPendingRemoval(K key) {
+        PendingWrite<V> pending = this.dirtyEntries.get(key);
+
+        return ( pending != null ) && ( pending.isRemoval() );
+    }
+
+    /**
+     * Copy the dirty entries, for writing to the store.
+     *
+     * @return copy of the dirty entries.
+     */
+    public Map<K, PendingWrite<V>> copyDirtyEntries() {
+        return new HashMap<>(this.dirtyEntries);
+    }
+
+    /**
+     * Clear the given dirty entry after it was written to the store, unless the key was changed again since.
+     *
+     * @param key key of the written entry.
+     * @param written change which was written, as returned by copyDirtyEntries().
+     */
+    public void clearDirtyEntry(K key, PendingWrite<V> written) {
+        this.dirtyEntries.remove(key, written);
+    }
+
+    @Override
+    public V get(Object key) {
+        return this.entries.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return this.entries.containsKey(key);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        synchronized ( this.writeLock(key) ) {
+            V oldValue = this.entries.put(key, value);
+            this.dirtyEntries.put(key, new PendingWrite<>(value));
+
+            return oldValue;
+        }
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        synchronized ( this.writeLock(key) ) {
+            V existingValue = this.entries.putIfAbsent(key, value);
+            if ( existingValue == null ) {
+                this.dirtyEntries.put(key, new PendingWrite<>(value));
+            }
+
+            return existingValue;
+        }
+    }
+
+    /**
+     * Remove the given key, recording its removal even when it is not present so that it is also removed from the
+     * store.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        synchronized ( this.writeLock(key) ) {
+            V removedValue = this.entries.remove(key);
+            this.dirtyEntries.put((K) key, new PendingWrite<V>(null));
+            this.removalListener.onRemoved((K) key);
+
+            return removedValue;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object key, Object value) {
+        synchronized ( this.writeLock(key) ) {
+            if ( ! this.entries.remove(key, value) ) {
+                return false;
+            }
+
+            this.dirtyEntries.put((K) key, new PendingWrite<V>(null));
+            this.removalListener.onRemoved((K) key);
+
+            return true;
+        }
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        synchronized ( this.writeLock(key) ) {
+            if ( ! this.entries.replace(key, oldValue, newValue) ) {
+                return false;
+            }
+
+            this.dirtyEntries.put(key, new PendingWrite<>(newValue));
+
+            return true;
+        }
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        synchronized ( this.writeLock(key) ) {
+            V oldValue = this.entries.replace(key, value);
+            if ( oldValue != null ) {
+                this.dirtyEntries.put(key, new PendingWrite<>(value));
+            }
+
+            return oldValue;
+        }
+    }
+
+    @Override
+    public int size() {
+        return this.entries.size();
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return Collections.unmodifiableSet(this.entries.entrySet());
+    }
+
+
+                                                 ////             ////
+                                                 ////  INTERNALS  ////
+                                                 ////             ////
+
+    /**
+     * Listener for removals made through the map; called while holding the write lock of the removed key.
+     */
+    interface RemovalListener<K> {
+        void onRemoved(K key);
+    }
+
+    /**
+     * Change to an entry waiting to be written to the backing store; instances are compared by identity so a flush
+     * only clears the exact change it wrote.
+     */
+    static final class PendingWrite<V> {
+        private final V value;
+
+        private PendingWrite(V value) {
+            this.value = value;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public boolean isRemoval() {
+            return value == null;
+        }
+    }
+}
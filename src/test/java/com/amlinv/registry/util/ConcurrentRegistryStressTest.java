@@ -0,0 +1,275 @@
+/*
+ *   Copyright 2015 AML Innovation & Consulting LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.amlinv.registry.util;
+
+import com.amlinv.registry.util.listener.NotificationExecutor;
+import com.amlinv.registry.util.listener.SimpleSynchronousNotificationExecutor;
+import com.amlinv.registry.util.monitor.InstrumentedNotificationExecutor;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Multi-threaded stress test of the registry which verifies that a listener rebuilding the registry's content from
+ * notifications alone stays consistent with the registry, and reports throughput and scaling for each notification
+ * executor.
+ * <p>
+ * Every thread applies a fixed, seeded sequence of put, putIfAbsent, remove(k) and remove(k, v) operations to a
+ * small set of keys so that updates to the same key constantly collide.  After each round, once all threads have
+ * finished, the listener's map must equal asMap(), and every notification must have been consistent with the
+ * listener's view of the key at the time (no put of a present key, no replace or remove of a different value).
+ * </p>
+ * <p>
+ * Consistency is asserted for key-ordered notification.  The default, unordered, registry is run as well and any
+ * drift it shows is reported as a warning, since without key ordering it is expected under contention.  By default
+ * the runs are short; set the system property registry.stress.full=true for the full scaling runs.  Throughput is
+ * reported through the logger at info level.
+ * </p>
+ */
+public class ConcurrentRegistryStressTest {
+    private static final int KEY_COUNT = 16;
+    private static final int VALUE_COUNT = 4;
+    private static final boolean FULL_RUN = Boolean.getBoolean("registry.stress.full");
+    private static final int OPERATIONS_PER_THREAD = FULL_RUN ? 50000 : 5000;
+    private static final int ROUNDS = 3;
+    private static final int[] THREAD_COUNTS = FULL_RUN ? new int[] { 1, 2, 4, 8 } : new int[] { 1, 4 };
+    private static final long SEED = 20161019L;
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConcurrentRegistryStressTest.class);
+
+    @Test
+    public void testKeyOrderedSimpleSynchronousExecutor() throws Exception {
+        this.runScaling("SimpleSynchronousNotificationExecutor", new ExecutorFactory() {
+            @Override
+            public NotificationExecutor<Integer, Integer> create() {
+                return new SimpleSynchronousNotificationExecutor<>();
+            }
+        }, true);
+    }
+
+    @Test
+    public void testKeyOrderedInstrumentedExecutor() throws Exception {
+        this.runScaling("InstrumentedNotificationExecutor", new ExecutorFactory() {
+            @Override
+            public NotificationExecutor<Integer, Integer> create() {
+                return new InstrumentedNotificationExecutor<>(
+                        new SimpleSynchronousNotificationExecutor<Integer, Integer>());
+            }
+        }, true);
+    }
+
+    /**
+     * Without key-ordered notification, listeners may see conflicting updates to a key out of order; the drift is
+     * reported rather than asserted, since whether it occurs depends on thread scheduling.
+     */
+    @Test
+    public void testUnorderedSimpleSynchronousExecutor() throws Exception {
+        this.runScaling("SimpleSynchronousNotificationExecutor (unordered)", new ExecutorFactory() {
+            @Override
+            public NotificationExecutor<Integer, Integer> create() {
+                return new SimpleSynchronousNotificationExecutor<>();
+            }
+        }, false);
+    }
+
+
+
+                                                 ////             ////
+                                                 ////  INTERNALS  ////
+                                                 ////             ////
+
+    protected void runScaling(String executorName, ExecutorFactory executorFactory, boolean keyOrdered)
+            throws Exception {
+
+        double baseRate = 0;
+        for ( int threadCount : THREAD_COUNTS ) {
+            StressResult result = this.runStress(executorFactory.create(), keyOrdered, threadCount);
+
+            if ( baseRate == 0 ) {
+                baseRate = result.operationsPerSecond;
+            }
+
+            if ( LOG.isInfoEnabled() ) {
+                LOG.info(String.format("%-52s threads=%d ops/sec=%,12.0f scaling=%5.2fx drift-rounds=%d " +
+                        "inconsistent-notifications=%d", executorName, threadCount, result.operationsPerSecond,
+                        result.operationsPerSecond / baseRate, result.driftRounds, result.violations));
+            }
+
+            if ( ( ! keyOrdered ) && ( ( result.driftRounds > 0 ) || ( result.violations > 0 ) ) ) {
+                LOG.warn("{}: listener drifted from the registry with {} threads; drift-rounds={} " +
+                        "inconsistent-notifications={}", executorName, threadCount, result.driftRounds,
+                        result.violations);
+            }
+
+            if ( keyOrdered ) {
+                assertEquals("listener diverged from registry", 0, result.driftRounds);
+                assertEquals("inconsistent notifications", 0, result.violations);
+            }
+        }
+    }
+
+    protected StressResult runStress(NotificationExecutor<Integer, Integer> executor, boolean keyOrdered,
+                                     int threadCount) throws Exception {
+
+        final ConcurrentRegistry<Integer, Integer> registry = new ConcurrentRegistry<>(executor);
+        registry.setKeyOrderedNotification(keyOrdered);
+
+        ReconstructingListener listener = new ReconstructingListener();
+        registry.addListener(listener);
+
+        StressResult result = new StressResult();
+        long totalNanos = 0;
+
+        for ( int round = 0; round < ROUNDS; round++ ) {
+            final CountDownLatch startLatch = new CountDownLatch(1);
+            final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+            List<Thread> threads = new LinkedList<>();
+            for ( int threadNum = 0; threadNum < threadCount; threadNum++ ) {
+                final Random random = new Random(SEED + ( round * 1000 ) + threadNum);
+
+                Thread oneThread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            startLatch.await();
+                            applyOperations(registry, random);
+                        } catch ( Throwable thrown ) {
+                            failure.compareAndSet(null, thrown);
+                        }
+                    }
+                }, "registry-stress-" + threadNum);
+
+                oneThread.start();
+                threads.add(oneThread);
+            }
+
+            long start = System.nanoTime();
+            startLatch.countDown();
+            for ( Thread oneThread : threads ) {
+                oneThread.join(TimeUnit.MINUTES.toMillis(1));
+                assertFalse("stress thread did not complete", oneThread.isAlive());
+            }
+            totalNanos += System.nanoTime() - start;
+
+            if ( failure.get() != null ) {
+                throw new AssertionError("stress thread failed: " + failure.get());
+            }
+
+            if ( ! new HashMap<>(registry.asMap()).equals(new HashMap<>(listener.state)) ) {
+                result.driftRounds++;
+
+                // Resynchronize so that drift in later rounds is counted independently.
+                listener.state.clear();
+                listener.state.putAll(registry.asMap());
+            }
+        }
+
+        if ( executor instanceof InstrumentedNotificationExecutor ) {
+            assertEquals(listener.notificationCount.get(),
+                    ( (InstrumentedNotificationExecutor<?, ?>) executor ).getNotificationCount());
+        }
+
+        result.violations = listener.violations.get();
+        result.operationsPerSecond =
+                ( (double) threadCount * OPERATIONS_PER_THREAD * ROUNDS ) * TimeUnit.SECONDS.toNanos(1) / totalNanos;
+
+        return result;
+    }
+
+    protected static void applyOperations(ConcurrentRegistry<Integer, Integer> registry, Random random) {
+        for ( int cur = 0; cur < OPERATIONS_PER_THREAD; cur++ ) {
+            Integer key = random.nextInt(KEY_COUNT);
+            Integer value = random.nextInt(VALUE_COUNT);
+
+            switch ( random.nextInt(4) ) {
+                case 0:
+                    registry.put(key, value);
+                    break;
+
+                case 1:
+                    registry.putIfAbsent(key, value);
+                    break;
+
+                case 2:
+                    registry.remove(key);
+                    break;
+
+                default:
+                    registry.remove(key, value);
+                    break;
+            }
+        }
+    }
+
+    protected interface ExecutorFactory {
+        NotificationExecutor<Integer, Integer> create();
+    }
+
+    protected static class StressResult {
+        private double operationsPerSecond;
+        private int driftRounds;
+        private long violations;
+    }
+
+    /**
+     * Listener which rebuilds the content of the registry from notifications, counting notifications which are
+     * inconsistent with the content rebuilt so far.
+     */
+    protected static class ReconstructingListener implements RegistryListener<Integer, Integer> {
+        private final Map<Integer, Integer> state = new ConcurrentHashMap<>();
+        private final AtomicLong violations = new AtomicLong();
+        private final AtomicLong notificationCount = new AtomicLong();
+
+        @Override
+        public void onPutEntry(Integer putKey, Integer putValue) {
+            this.notificationCount.incrementAndGet();
+
+            if ( this.state.put(putKey, putValue) != null ) {
+                this.violations.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void onRemoveEntry(Integer removeKey, Integer removeValue) {
+            this.notificationCount.incrementAndGet();
+
+            if ( ! removeValue.equals(this.state.remove(removeKey)) ) {
+                this.violations.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void onReplaceEntry(Integer replaceKey, Integer oldValue, Integer newValue) {
+            this.notificationCount.incrementAndGet();
+
+            if ( ! oldValue.equals(this.state.put(replaceKey, newValue)) ) {
+                this.violations.incrementAndGet();
+            }
+        }
+    }
+}
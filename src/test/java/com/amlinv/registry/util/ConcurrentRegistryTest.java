@@ -27,6 +27,9 @@ import org.mockito.ArgumentMatcher;
 import org.mockito.Mockito;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -208,6 +211,157 @@ public class ConcurrentRegistryTest {
 
     }
 
+    @Test
+    public void testKeyOrderedNotification() throws Exception {
+        final CountDownLatch putNotifying = new CountDownLatch(1);
+        final CountDownLatch releasePut = new CountDownLatch(1);
+        final List<String> notifications = new CopyOnWriteArrayList<>();
+
+        this.registry = new ConcurrentRegistry<>(new SimpleSynchronousNotificationExecutor<String, String>() {
+            @Override
+            public void firePutNotification(Iterator<RegistryListener<String, String>> listeners, String putKey,
+                                            String putValue) {
+                putNotifying.countDown();
+                try {
+                    releasePut.await();
+                } catch ( InterruptedException intExc ) {
+                    Thread.currentThread().interrupt();
+                }
+
+                notifications.add("put:" + putKey);
+            }
+
+            @Override
+            public void fireRemoveNotification(Iterator<RegistryListener<String, String>> listeners,
+                                               String removeKey, String removeValue) {
+                notifications.add("remove:" + removeKey);
+            }
+        });
+
+        assertFalse(this.registry.isKeyOrderedNotification());
+        this.registry.setKeyOrderedNotification(true);
+        assertTrue(this.registry.isKeyOrderedNotification());
+
+        Thread putThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                registry.put("x-key1-x", "x-value1-x");
+            }
+        });
+        putThread.start();
+        assertTrue(putNotifying.await(5, TimeUnit.SECONDS));
+
+        Thread removeThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                registry.remove("x-key1-x");
+            }
+        });
+        removeThread.start();
+
+        //
+        // The removal has already been applied to the store when unordered; with key-ordered notification it must
+        //  wait for the put notification to complete.
+        //
+        removeThread.join(200);
+        assertTrue(removeThread.isAlive());
+        assertEquals("x-value1-x", this.registry.get("x-key1-x"));
+
+        releasePut.countDown();
+        putThread.join();
+        removeThread.join();
+
+        assertEquals(Arrays.asList("put:x-key1-x", "remove:x-key1-x"), notifications);
+        assertNull(this.registry.get("x-key1-x"));
+    }
+
+    @Test
+    public void testKeyOrderedListenerUpdatesNotifiedKey() throws Exception {
+        final ConcurrentRegistry<String, String> orderedRegistry = new ConcurrentRegistry<>();
+        orderedRegistry.setKeyOrderedNotification(true);
+        orderedRegistry.addListener(new RegistryListener<String, String>() {
+            @Override
+            public void onPutEntry(String putKey, String putValue) {
+                orderedRegistry.put(putKey, putValue + "B");
+            }
+
+            @Override
+            public void onRemoveEntry(String removeKey, String removeValue) {
+            }
+
+            @Override
+            public void onReplaceEntry(String replaceKey, String oldValue, String newValue) {
+            }
+        });
+
+        orderedRegistry.put("x-key1-x", "x-value1-x");
+        assertEquals("x-value1-xB", orderedRegistry.get("x-key1-x"));
+    }
+
+    /**
+     * With key-ordered notification, a listener updating another key waits for any notification in progress on that
+     * key, which is why listeners must not do so.
+     */
+    @Test
+    public void testKeyOrderedListenerUpdatingOtherKeyWaits() throws Exception {
+        final CountDownLatch key2Notifying = new CountDownLatch(1);
+        final CountDownLatch releaseKey2 = new CountDownLatch(1);
+
+        // Integer keys 1 and 2 hash to different stripes.
+        final ConcurrentRegistry<Integer, String> orderedRegistry = new ConcurrentRegistry<>();
+        orderedRegistry.setKeyOrderedNotification(true);
+        orderedRegistry.addListener(new RegistryListener<Integer, String>() {
+            @Override
+            public void onPutEntry(Integer putKey, String putValue) {
+                if ( putKey == 1 ) {
+                    orderedRegistry.put(2, "x-value2B-x");
+                } else {
+                    key2Notifying.countDown();
+                    try {
+                        releaseKey2.await();
+                    } catch ( InterruptedException intExc ) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+
+            @Override
+            public void onRemoveEntry(Integer removeKey, String removeValue) {
+            }
+
+            @Override
+            public void onReplaceEntry(Integer replaceKey, String oldValue, String newValue) {
+            }
+        });
+
+        Thread key2Thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                orderedRegistry.put(2, "x-value2-x");
+            }
+        });
+        key2Thread.start();
+        assertTrue(key2Notifying.await(5, TimeUnit.SECONDS));
+
+        Thread key1Thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                orderedRegistry.put(1, "x-value1-x");
+            }
+        });
+        key1Thread.start();
+
+        this.waitForState(key1Thread, Thread.State.BLOCKED);
+        assertEquals("x-value2-x", orderedRegistry.get(2));
+
+        releaseKey2.countDown();
+        key2Thread.join();
+        key1Thread.join();
+
+        assertEquals("x-value1-x", orderedRegistry.get(1));
+        assertEquals("x-value2B-x", orderedRegistry.get(2));
+    }
+
     @Test
     public void testKeys() throws Exception {
         assertEquals(0, this.registry.keys().size());
@@ -262,6 +416,15 @@ public class ConcurrentRegistryTest {
                                                  ////  INTERNALS  ////
                                                  ////             ////
 
+    protected void waitForState(Thread thread, Thread.State expected) throws Exception {
+        long expire = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ( ( thread.getState() != expected ) && ( System.nanoTime() < expire ) ) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(expected, thread.getState());
+    }
+
     protected void validateIterator(Iterator actual, Object... expectedObjs) throws Exception {
         int cur = 0;
         while (cur < expectedObjs.length) {
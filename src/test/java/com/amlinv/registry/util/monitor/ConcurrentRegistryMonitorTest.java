@@ -0,0 +1,167 @@
+/*
+ *   Copyright 2015 AML Innovation & Consulting LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.amlinv.registry.util.monitor;
+
+import com.amlinv.registry.util.ConcurrentRegistry;
+import com.amlinv.registry.util.RegistryListener;
+import com.amlinv.registry.util.listener.SimpleSynchronousNotificationExecutor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentRegistryMonitorTest {
+
+    private MBeanServer mBeanServer;
+    private InstrumentedNotificationExecutor<String, String> executor;
+    private ConcurrentRegistry<String, String> registry;
+    private ConcurrentRegistryMonitor monitor;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.mBeanServer = MBeanServerFactory.newMBeanServer();
+        this.executor =
+                new InstrumentedNotificationExecutor<>(new SimpleSynchronousNotificationExecutor<String, String>());
+        this.registry = new ConcurrentRegistry<>(this.executor);
+
+        this.monitor = new ConcurrentRegistryMonitor("x-registry-x", this.registry);
+        this.monitor.setMBeanServer(this.mBeanServer);
+    }
+
+    @After
+    public void cleanupTest() throws Exception {
+        this.monitor.unregister();
+    }
+
+    @Test
+    public void testRegisterUnregister() throws Exception {
+        assertEquals("com.amlinv.registry:type=ConcurrentRegistry,name=\"x-registry-x\"",
+                this.monitor.getObjectName().toString());
+
+        this.monitor.register();
+        assertTrue(this.mBeanServer.isRegistered(this.monitor.getObjectName()));
+        assertEquals("x-registry-x", this.mBeanServer.getAttribute(this.monitor.getObjectName(), "Name"));
+
+        this.monitor.unregister();
+        assertFalse(this.mBeanServer.isRegistered(this.monitor.getObjectName()));
+    }
+
+    @Test(expected = InstanceAlreadyExistsException.class)
+    public void testRegisterDuplicateName() throws Exception {
+        ConcurrentRegistryMonitor duplicate =
+                new ConcurrentRegistryMonitor("x-registry-x", new ConcurrentRegistry<String, String>());
+        duplicate.setMBeanServer(this.mBeanServer);
+
+        this.monitor.register();
+        duplicate.register();
+    }
+
+    @Test
+    public void testCountsThroughMBeanServer() throws Exception {
+        this.monitor.register();
+        this.registry.addListener(new NoOpListener());
+
+        this.registry.put("x-key1-x", "x-value1-x");
+        this.registry.put("x-key2-x", "x-value2-x");
+        this.registry.put("x-key1-x", "x-value1B-x");
+        this.registry.putIfAbsent("x-key2-x", "x-value2B-x");
+        this.registry.remove("x-key2-x");
+        this.registry.remove("x-key3-x");
+
+        assertEquals(1, this.mBeanServer.getAttribute(this.monitor.getObjectName(), "EntryCount"));
+        assertEquals(1, this.mBeanServer.getAttribute(this.monitor.getObjectName(), "ListenerCount"));
+        assertEquals(true, this.mBeanServer.getAttribute(this.monitor.getObjectName(), "Instrumented"));
+        assertEquals(2L, this.mBeanServer.getAttribute(this.monitor.getObjectName(), "PutNotificationCount"));
+        assertEquals(1L, this.mBeanServer.getAttribute(this.monitor.getObjectName(), "RemoveNotificationCount"));
+        assertEquals(1L, this.mBeanServer.getAttribute(this.monitor.getObjectName(), "ReplaceNotificationCount"));
+        assertEquals(4L, this.mBeanServer.getAttribute(this.monitor.getObjectName(), "NotificationCount"));
+
+        assertTrue(this.monitor.getTotalDispatchTimeNanos() >= 0);
+        assertEquals((double) this.monitor.getTotalDispatchTimeNanos() / 4,
+                this.monitor.getAverageDispatchTimeNanos(), 0.001);
+    }
+
+    @Test
+    public void testRates() throws Exception {
+        this.monitor.setSampleIntervalMs(50);
+        assertEquals(0.0, this.monitor.getPutNotificationRate(), 0.0);
+
+        Thread.sleep(60);
+        this.registry.put("x-key1-x", "x-value1-x");
+        this.registry.put("x-key2-x", "x-value2-x");
+
+        double rate = this.monitor.getPutNotificationRate();
+        assertTrue("rate=" + rate, rate > 0.0);
+        assertTrue("rate=" + rate, rate <= 2.0 / 0.05);
+
+        // Within the sampling interval, the previous rate is reported.
+        assertEquals(rate, this.monitor.getPutNotificationRate(), 0.0);
+        assertEquals(0.0, this.monitor.getRemoveNotificationRate(), 0.0);
+    }
+
+    @Test
+    public void testRatesExcludeEarlierActivity() throws Exception {
+        this.registry.put("x-key1-x", "x-value1-x");
+        this.registry.put("x-key2-x", "x-value2-x");
+
+        this.monitor = new ConcurrentRegistryMonitor("x-registry-x", this.registry);
+        this.monitor.setSampleIntervalMs(50);
+
+        Thread.sleep(60);
+        assertEquals(0.0, this.monitor.getPutNotificationRate(), 0.0);
+        assertEquals(0.0, this.monitor.getNotificationRate(), 0.0);
+    }
+
+    @Test
+    public void testUninstrumentedRegistry() throws Exception {
+        ConcurrentRegistry<String, String> plainRegistry = new ConcurrentRegistry<>();
+        plainRegistry.put("x-key1-x", "x-value1-x");
+
+        ConcurrentRegistryMonitor plainMonitor = new ConcurrentRegistryMonitor("x-plain-x", plainRegistry);
+
+        assertFalse(plainMonitor.isInstrumented());
+        assertEquals(1, plainMonitor.getEntryCount());
+        assertEquals(0, plainMonitor.getPutNotificationCount());
+        assertEquals(0.0, plainMonitor.getNotificationRate(), 0.0);
+        assertEquals(0.0, plainMonitor.getAverageDispatchTimeNanos(), 0.0);
+    }
+
+
+                                                 ////             ////
+                                                 ////  INTERNALS  ////
+                                                 ////             ////
+
+    protected static class NoOpListener implements RegistryListener<String, String> {
+        @Override
+        public void onPutEntry(String putKey, String putValue) {
+        }
+
+        @Override
+        public void onRemoveEntry(String removeKey, String removeValue) {
+        }
+
+        @Override
+        public void onReplaceEntry(String replaceKey, String oldValue, String newValue) {
+        }
+    }
+}
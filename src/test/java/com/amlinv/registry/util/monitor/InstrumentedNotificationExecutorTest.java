@@ -0,0 +1,118 @@
+/*
+ *   Copyright 2015 AML Innovation & Consulting LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.amlinv.registry.util.monitor;
+
+import com.amlinv.registry.util.RegistryListener;
+import com.amlinv.registry.util.listener.NotificationExecutor;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class InstrumentedNotificationExecutorTest {
+
+    private NotificationExecutor<String, String> mockDelegate;
+    private InstrumentedNotificationExecutor<String, String> executor;
+    private Iterator<RegistryListener<String, String>> listenerIterator;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.mockDelegate = Mockito.mock(NotificationExecutor.class);
+        this.executor = new InstrumentedNotificationExecutor<>(this.mockDelegate);
+
+        List<RegistryListener<String, String>> listeners = new LinkedList<>();
+        listeners.add(Mockito.mock(RegistryListener.class));
+        this.listenerIterator = listeners.iterator();
+    }
+
+    @Test
+    public void testGetDelegate() throws Exception {
+        assertSame(this.mockDelegate, this.executor.getDelegate());
+    }
+
+    @Test
+    public void testFirePutNotification() throws Exception {
+        this.executor.firePutNotification(this.listenerIterator, "x-key1-x", "x-value1-x");
+
+        Mockito.verify(this.mockDelegate).firePutNotification(this.listenerIterator, "x-key1-x", "x-value1-x");
+        assertEquals(1, this.executor.getPutNotificationCount());
+        assertEquals(0, this.executor.getRemoveNotificationCount());
+        assertEquals(0, this.executor.getReplaceNotificationCount());
+        assertEquals(1, this.executor.getNotificationCount());
+    }
+
+    @Test
+    public void testFireRemoveNotification() throws Exception {
+        this.executor.fireRemoveNotification(this.listenerIterator, "x-key1-x", "x-value1-x");
+
+        Mockito.verify(this.mockDelegate).fireRemoveNotification(this.listenerIterator, "x-key1-x", "x-value1-x");
+        assertEquals(0, this.executor.getPutNotificationCount());
+        assertEquals(1, this.executor.getRemoveNotificationCount());
+        assertEquals(0, this.executor.getReplaceNotificationCount());
+        assertEquals(1, this.executor.getNotificationCount());
+    }
+
+    @Test
+    public void testFireReplaceNotification() throws Exception {
+        this.executor.fireReplaceNotification(this.listenerIterator, "x-key1-x", "x-value1-x", "x-value2-x");
+
+        Mockito.verify(this.mockDelegate)
+                .fireReplaceNotification(this.listenerIterator, "x-key1-x", "x-value1-x", "x-value2-x");
+        assertEquals(0, this.executor.getPutNotificationCount());
+        assertEquals(0, this.executor.getRemoveNotificationCount());
+        assertEquals(1, this.executor.getReplaceNotificationCount());
+        assertEquals(1, this.executor.getNotificationCount());
+    }
+
+    @Test
+    public void testDispatchTimeMeasured() throws Exception {
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                Thread.sleep(5);
+                return null;
+            }
+        }).when(this.mockDelegate).firePutNotification(this.listenerIterator, "x-key1-x", "x-value1-x");
+
+        this.executor.firePutNotification(this.listenerIterator, "x-key1-x", "x-value1-x");
+
+        assertTrue(this.executor.getTotalDispatchNanos() >= 5000000L);
+    }
+
+    @Test
+    public void testCountedWhenDelegateFails() throws Exception {
+        Mockito.doThrow(new RuntimeException("x-listener-failure-x")).when(this.mockDelegate)
+                .firePutNotification(this.listenerIterator, "x-key1-x", "x-value1-x");
+
+        try {
+            this.executor.firePutNotification(this.listenerIterator, "x-key1-x", "x-value1-x");
+            fail("expected RuntimeException");
+        } catch ( RuntimeException expected ) {
+            assertEquals("x-listener-failure-x", expected.getMessage());
+        }
+
+        assertEquals(1, this.executor.getPutNotificationCount());
+    }
+}
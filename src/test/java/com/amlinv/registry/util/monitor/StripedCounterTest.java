@@ -0,0 +1,66 @@
+/*
+ *   Copyright 2015 AML Innovation & Consulting LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.amlinv.registry.util.monitor;
+
+import org.junit.Test;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StripedCounterTest {
+
+    @Test
+    public void testIncrementAndAdd() throws Exception {
+        StripedCounter counter = new StripedCounter(3);
+        assertEquals(0, counter.sum());
+
+        counter.increment();
+        counter.add(41);
+        assertEquals(42, counter.sum());
+
+        counter.add(-2);
+        assertEquals(40, counter.sum());
+    }
+
+    @Test
+    public void testConcurrentIncrements() throws Exception {
+        final StripedCounter counter = new StripedCounter();
+
+        List<Thread> threads = new LinkedList<>();
+        for ( int cur = 0; cur < 8; cur++ ) {
+            Thread oneThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for ( int iteration = 0; iteration < 10000; iteration++ ) {
+                        counter.increment();
+                    }
+                }
+            });
+            oneThread.start();
+            threads.add(oneThread);
+        }
+
+        for ( Thread oneThread : threads ) {
+            oneThread.join();
+        }
+
+        assertEquals(80000, counter.sum());
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ *   Copyright 2015 AML Innovation & Consulting LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.amlinv.registry.util.reference;
+
+import com.amlinv.registry.util.RegistryListener;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ReferenceValuedRegistryTest {
+
+    private ReferenceValuedRegistry<String, Object> registry;
+    private RecordingListener listener;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.registry = new ReferenceValuedRegistry<>(ReferenceStrength.WEAK);
+        this.listener = new RecordingListener();
+        this.registry.addListener(this.listener);
+    }
+
+    @Test
+    public void testBasicOperations() throws Exception {
+        Object value1 = new Object();
+        Object value1B = new Object();
+        Object value2 = new Object();
+
+        assertNull(this.registry.put("x-key1-x", value1));
+        assertSame(value1, this.registry.get("x-key1-x"));
+        assertTrue(this.registry.containsKey("x-key1-x"));
+
+        assertSame(value1, this.registry.put("x-key1-x", value1B));
+        assertSame(value1B, this.registry.putIfAbsent("x-key1-x", value2));
+        assertNull(this.registry.putIfAbsent("x-key2-x", value2));
+
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("x-key1-x", value1B);
+        expected.put("x-key2-x", value2);
+        assertEquals(expected, this.registry.asMap());
+        assertEquals(expected.keySet(), this.registry.keys());
+
+        assertFalse(this.registry.remove("x-key2-x", value1));
+        assertTrue(this.registry.remove("x-key2-x", value2));
+        assertSame(value1B, this.registry.remove("x-key1-x"));
+        assertNull(this.registry.remove("x-key1-x"));
+        assertEquals(0, this.registry.asMap().size());
+
+        assertEquals(Arrays.asList("put:x-key1-x", "replace:x-key1-x", "put:x-key2-x", "remove:x-key2-x",
+                "remove:x-key1-x"), this.listener.events);
+    }
+
+    @Test
+    public void testSoftValues() throws Exception {
+        this.registry = new ReferenceValuedRegistry<>(ReferenceStrength.SOFT);
+        this.registry.addListener(this.listener);
+
+        this.registry.put("x-key1-x", new Object());
+        System.gc();
+
+        // Soft references are only cleared under memory pressure.
+        assertNotNull(this.registry.get("x-key1-x"));
+        assertEquals(0, this.registry.purgeCollectedEntries());
+        assertEquals(Arrays.asList("put:x-key1-x"), this.listener.events);
+    }
+
+    @Test
+    public void testStronglyHeldValueRetained() throws Exception {
+        Object value1 = new Object();
+        this.registry.put("x-key1-x", value1);
+
+        System.gc();
+        assertEquals(0, this.registry.purgeCollectedEntries());
+        assertSame(value1, this.registry.get("x-key1-x"));
+    }
+
+    @Test
+    public void testCollectedValuePurgedWithNotification() throws Exception {
+        Object value2 = new Object();
+        this.registry.put("x-key1-x", new Object());
+        this.registry.put("x-key2-x", value2);
+
+        this.waitForCollection("x-key1-x");
+
+        assertNull(this.registry.get("x-key1-x"));
+        assertFalse(this.registry.containsKey("x-key1-x"));
+        assertEquals(Collections.singletonMap("x-key2-x", value2), new HashMap<>(this.registry.asMap()));
+
+        this.waitForPurge(1);
+        assertEquals(1, this.registry.asMap().size());
+        assertEquals(Arrays.asList("put:x-key1-x", "put:x-key2-x", "collected:x-key1-x"), this.listener.events);
+
+        // Purged only once
+        assertEquals(0, this.registry.purgeCollectedEntries());
+    }
+
+    @Test
+    public void testCollectedValueNotReportedAsRemoval() throws Exception {
+        final List<String> removed = new CopyOnWriteArrayList<>();
+        this.registry.addListener(new RegistryListener<String, Object>() {
+            @Override
+            public void onPutEntry(String putKey, Object putValue) {
+            }
+
+            @Override
+            public void onRemoveEntry(String removeKey, Object removeValue) {
+                removed.add(removeKey + "=" + removeValue.getClass().getSimpleName());
+            }
+
+            @Override
+            public void onReplaceEntry(String replaceKey, Object oldValue, Object newValue) {
+            }
+        });
+
+        this.registry.put("x-key1-x", new Object());
+        this.waitForCollection("x-key1-x");
+        this.waitForPurge(1);
+
+        this.registry.put("x-key2-x", "x-value2-x");
+        this.registry.remove("x-key2-x");
+
+        assertEquals(Arrays.asList("x-key2-x=String"), removed);
+        assertEquals(Arrays.asList("put:x-key1-x", "collected:x-key1-x", "put:x-key2-x", "remove:x-key2-x"),
+                this.listener.events);
+    }
+
+    @Test
+    public void testPutIfAbsentOverCollectedValue() throws Exception {
+        this.registry.put("x-key1-x", new Object());
+        this.waitForCollection("x-key1-x");
+
+        Object value1B = new Object();
+        assertNull(this.registry.putIfAbsent("x-key1-x", value1B));
+        assertSame(value1B, this.registry.get("x-key1-x"));
+
+        // Removal of the collected value is reported before the new value, whichever path purges it.
+        assertEquals(0, this.registry.purgeCollectedEntries());
+        assertEquals(Arrays.asList("put:x-key1-x", "collected:x-key1-x", "put:x-key1-x"), this.listener.events);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullValue() throws Exception {
+        this.registry.put("x-key1-x", null);
+    }
+
+
+
+                                                 ////             ////
+                                                 ////  INTERNALS  ////
+                                                 ////             ////
+
+    protected void waitForCollection(String key) throws Exception {
+        long expire = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ( ( this.registry.get(key) != null ) && ( System.nanoTime() < expire ) ) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertNull("value was not collected", this.registry.get(key));
+    }
+
+    protected void waitForPurge(int expected) throws Exception {
+        long expire = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        int purged = this.registry.purgeCollectedEntries();
+        while ( ( purged < expected ) && ( System.nanoTime() < expire ) ) {
+            System.gc();
+            Thread.sleep(10);
+            purged += this.registry.purgeCollectedEntries();
+        }
+
+        assertEquals(expected, purged);
+    }
+
+    protected static class RecordingListener
+            implements RegistryListener<String, Object>, CollectedEntryListener<String> {
+        private final List<String> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onPutEntry(String putKey, Object putValue) {
+            this.events.add("put:" + putKey);
+        }
+
+        @Override
+        public void onRemoveEntry(String removeKey, Object removeValue) {
+            this.events.add("remove:" + removeKey);
+        }
+
+        @Override
+        public void onCollectedEntry(String collectedKey) {
+            this.events.add("collected:" + collectedKey);
+        }
+
+        @Override
+        public void onReplaceEntry(String replaceKey, Object oldValue, Object newValue) {
+            this.events.add("replace:" + replaceKey);
+        }
+    }
+}
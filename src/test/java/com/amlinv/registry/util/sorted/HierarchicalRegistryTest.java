@@ -0,0 +1,98 @@
+/*
+ *   Copyright 2015 AML Innovation & Consulting LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.amlinv.registry.util.sorted;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class HierarchicalRegistryTest {
+
+    private HierarchicalRegistry<String> registry;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.registry = new HierarchicalRegistry<>();
+
+        this.registry.put("tenant1/service1/instance1", "x-value1-x");
+        this.registry.put("tenant1/service1/instance2", "x-value2-x");
+        this.registry.put("tenant1/service2/instance1", "x-value3-x");
+        this.registry.put("tenant10/service1/instance1", "x-value4-x");
+        this.registry.put("tenant2/service1/instance1", "x-value5-x");
+    }
+
+    @Test
+    public void testPrefixRange() throws Exception {
+        assertEquals(KeyRange.between("ab", "ac"), HierarchicalRegistry.prefixRange("ab"));
+        assertEquals(KeyRange.between("a\uffff", "b"), HierarchicalRegistry.prefixRange("a\uffff"));
+        assertEquals(KeyRange.atLeast("\uffff\uffff"), HierarchicalRegistry.prefixRange("\uffff\uffff"));
+        assertEquals(KeyRange.atLeast(""), HierarchicalRegistry.prefixRange(""));
+    }
+
+    @Test
+    public void testPrefixScan() throws Exception {
+        assertEquals(Arrays.asList("tenant1/service1/instance1", "tenant1/service1/instance2",
+                "tenant1/service2/instance1"), new ArrayList<>(this.registry.prefixScan("tenant1/").keySet()));
+
+        assertEquals(Arrays.asList("tenant1/service1/instance1", "tenant1/service1/instance2"),
+                new ArrayList<>(this.registry.prefixScan("tenant1/service1/").keySet()));
+
+        assertEquals(4, this.registry.prefixScan("tenant1").size());
+        assertEquals(5, this.registry.prefixScan("").size());
+        assertEquals(0, this.registry.prefixScan("tenant3/").size());
+    }
+
+    @Test
+    public void testPrefixScanWithMaxCharacter() throws Exception {
+        this.registry.put("tenant1/\uffff", "x-value6-x");
+        this.registry.put("tenant1/\uffff/x", "x-value7-x");
+        this.registry.put("tenant10", "x-value8-x");
+
+        assertEquals(Arrays.asList("tenant1/\uffff", "tenant1/\uffff/x"),
+                new ArrayList<>(this.registry.prefixScan("tenant1/\uffff").keySet()));
+    }
+
+    @Test
+    public void testSubRegistry() throws Exception {
+        RegistryRangeView<String, String> tenant1 = this.registry.subRegistry("tenant1/");
+
+        assertEquals(3, tenant1.asMap().size());
+        assertEquals("x-value1-x", tenant1.get("tenant1/service1/instance1"));
+        assertNull(tenant1.get("tenant2/service1/instance1"));
+    }
+
+    @Test
+    public void testPrefixListener() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        this.registry.addPrefixListener("tenant1/", listener);
+
+        this.registry.put("tenant1/service3/instance1", "x-value6-x");
+        this.registry.put("tenant10/service3/instance1", "x-value7-x");
+        this.registry.remove("tenant1/service1/instance1");
+        this.registry.remove("tenant2/service1/instance1");
+
+        assertEquals(Arrays.asList("put:tenant1/service3/instance1", "remove:tenant1/service1/instance1"),
+                listener.events);
+
+        this.registry.removePrefixListener("tenant1/", listener);
+        assertEquals(0, this.registry.getListeners().size());
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ *   Copyright 2015 AML Innovation & Consulting LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.amlinv.registry.util.sorted;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static org.junit.Assert.*;
+
+public class KeyRangeTest {
+
+    @Test
+    public void testBetween() throws Exception {
+        KeyRange<String> range = KeyRange.between("b", "d");
+
+        assertFalse(range.contains("a", null));
+        assertTrue(range.contains("b", null));
+        assertTrue(range.contains("c", null));
+        assertFalse(range.contains("d", null));
+        assertEquals("[b, d)", range.toString());
+    }
+
+    @Test
+    public void testExclusiveFromInclusiveTo() throws Exception {
+        KeyRange<String> range = new KeyRange<>("b", false, "d", true);
+
+        assertFalse(range.contains("b", null));
+        assertTrue(range.contains("c", null));
+        assertTrue(range.contains("d", null));
+        assertEquals("(b, d]", range.toString());
+    }
+
+    @Test
+    public void testUnbounded() throws Exception {
+        assertTrue(KeyRange.atLeast("b").contains("zzz", null));
+        assertFalse(KeyRange.atLeast("b").contains("a", null));
+        assertTrue(KeyRange.lessThan("b").contains("a", null));
+        assertFalse(KeyRange.lessThan("b").contains("b", null));
+    }
+
+    @Test
+    public void testContainsWithComparator() throws Exception {
+        KeyRange<String> range = KeyRange.between("d", "b");
+
+        assertTrue(range.contains("c", Collections.reverseOrder()));
+        assertFalse(range.contains("b", Collections.reverseOrder()));
+    }
+
+    @Test
+    public void testSubMap() throws Exception {
+        ConcurrentSkipListMap<String, String> map = new ConcurrentSkipListMap<>();
+        map.put("a", "x-a-x");
+        map.put("b", "x-b-x");
+        map.put("c", "x-c-x");
+
+        assertEquals(Collections.singletonMap("b", "x-b-x"), KeyRange.between("b", "c").subMap(map));
+        assertEquals(2, KeyRange.atLeast("b").subMap(map).size());
+        assertEquals(1, KeyRange.lessThan("b").subMap(map).size());
+        assertSame(map, new KeyRange<String>(null, false, null, false).subMap(map));
+    }
+
+    @Test
+    public void testEqualsHashCode() throws Exception {
+        assertEquals(KeyRange.between("a", "b"), KeyRange.between("a", "b"));
+        assertEquals(KeyRange.between("a", "b").hashCode(), KeyRange.between("a", "b").hashCode());
+        assertFalse(KeyRange.between("a", "b").equals(KeyRange.between("a", "c")));
+        assertFalse(KeyRange.between("a", "b").equals(new KeyRange<>("a", true, "b", true)));
+        assertFalse(KeyRange.atLeast("a").equals(KeyRange.lessThan("a")));
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ *   Copyright 2015 AML Innovation & Consulting LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.amlinv.registry.util.sorted;
+
+import com.amlinv.registry.util.RegistryListener;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import static org.junit.Assert.*;
+
+public class RangeFilteredRegistryListenerTest {
+
+    private RegistryListener<String, String> mockTarget;
+    private RangeFilteredRegistryListener<String, String> listener;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.mockTarget = Mockito.mock(RegistryListener.class);
+        this.listener = new RangeFilteredRegistryListener<>(this.mockTarget, KeyRange.between("b", "d"), null);
+    }
+
+    @Test
+    public void testGetters() throws Exception {
+        assertSame(this.mockTarget, this.listener.getTarget());
+        assertEquals(KeyRange.between("b", "d"), this.listener.getRange());
+    }
+
+    @Test
+    public void testOnPutEntry() throws Exception {
+        this.listener.onPutEntry("a", "x-value1-x");
+        this.listener.onPutEntry("b", "x-value2-x");
+
+        Mockito.verify(this.mockTarget).onPutEntry("b", "x-value2-x");
+        Mockito.verifyNoMoreInteractions(this.mockTarget);
+    }
+
+    @Test
+    public void testOnRemoveEntry() throws Exception {
+        this.listener.onRemoveEntry("d", "x-value1-x");
+        this.listener.onRemoveEntry("c", "x-value2-x");
+
+        Mockito.verify(this.mockTarget).onRemoveEntry("c", "x-value2-x");
+        Mockito.verifyNoMoreInteractions(this.mockTarget);
+    }
+
+    @Test
+    public void testOnReplaceEntry() throws Exception {
+        this.listener.onReplaceEntry("e", "x-value1-x", "x-value1B-x");
+        this.listener.onReplaceEntry("b", "x-value2-x", "x-value2B-x");
+
+        Mockito.verify(this.mockTarget).onReplaceEntry("b", "x-value2-x", "x-value2B-x");
+        Mockito.verifyNoMoreInteractions(this.mockTarget);
+    }
+
+    @Test
+    public void testEqualsHashCode() throws Exception {
+        RangeFilteredRegistryListener<String, String> same =
+                new RangeFilteredRegistryListener<>(this.mockTarget, KeyRange.between("b", "d"), null);
+        RangeFilteredRegistryListener<String, String> otherRange =
+                new RangeFilteredRegistryListener<>(this.mockTarget, KeyRange.between("b", "e"), null);
+
+        assertEquals(same, this.listener);
+        assertEquals(same.hashCode(), this.listener.hashCode());
+        assertFalse(otherRange.equals(this.listener));
+        assertFalse(this.listener.equals(this.mockTarget));
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ *   Copyright 2015 AML Innovation & Consulting LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.amlinv.registry.util.sorted;
+
+import com.amlinv.registry.util.RegistryListener;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Listener which records the notifications it receives as "put:key", "remove:key" and "replace:key" events, for
+ * tests of the sorted registries.
+ */
+class RecordingListener implements RegistryListener<String, String> {
+    final List<String> events = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void onPutEntry(String putKey, String putValue) {
+        this.events.add("put:" + putKey);
+    }
+
+    @Override
+    public void onRemoveEntry(String removeKey, String removeValue) {
+        this.events.add("remove:" + removeKey);
+    }
+
+    @Override
+    public void onReplaceEntry(String replaceKey, String oldValue, String newValue) {
+        this.events.add("replace:" + replaceKey);
+    }
+}
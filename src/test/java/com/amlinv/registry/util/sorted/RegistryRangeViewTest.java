@@ -0,0 +1,110 @@
+/*
+ *   Copyright 2015 AML Innovation & Consulting LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.amlinv.registry.util.sorted;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class RegistryRangeViewTest {
+
+    private SortedConcurrentRegistry<String, String> registry;
+    private RegistryRangeView<String, String> view;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.registry = new SortedConcurrentRegistry<>();
+        this.registry.put("x-key1-x", "x-value1-x");
+        this.registry.put("x-key2-x", "x-value2-x");
+        this.registry.put("x-key3-x", "x-value3-x");
+
+        this.view = new RegistryRangeView<>(this.registry, KeyRange.between("x-key2-x", "x-key4-x"));
+    }
+
+    @Test
+    public void testGetContainsKey() throws Exception {
+        assertNull(this.view.get("x-key1-x"));
+        assertFalse(this.view.containsKey("x-key1-x"));
+
+        assertEquals("x-value2-x", this.view.get("x-key2-x"));
+        assertTrue(this.view.containsKey("x-key2-x"));
+        assertFalse(this.view.containsKey("x-key35-x"));
+    }
+
+    @Test
+    public void testKeysValuesAsMap() throws Exception {
+        assertEquals(Arrays.asList("x-key2-x", "x-key3-x"), new ArrayList<>(this.view.keys()));
+        assertEquals(Arrays.asList("x-value2-x", "x-value3-x"), new ArrayList<>(this.view.values()));
+
+        SortedMap<String, String> expected = new TreeMap<>();
+        expected.put("x-key2-x", "x-value2-x");
+        expected.put("x-key3-x", "x-value3-x");
+        assertEquals(expected, this.view.asMap());
+
+        // Backed by the registry
+        this.registry.put("x-key35-x", "x-value35-x");
+        assertEquals(3, this.view.asMap().size());
+    }
+
+    @Test
+    public void testPutAndRemove() throws Exception {
+        assertNull(this.view.put("x-key35-x", "x-value35-x"));
+        assertEquals("x-value35-x", this.registry.get("x-key35-x"));
+
+        assertEquals("x-value3-x", this.view.putIfAbsent("x-key3-x", "x-value3B-x"));
+
+        assertNull(this.view.remove("x-key1-x"));
+        assertTrue(this.registry.containsKey("x-key1-x"));
+        assertFalse(this.view.remove("x-key1-x", "x-value1-x"));
+        assertTrue(this.registry.containsKey("x-key1-x"));
+
+        assertEquals("x-value2-x", this.view.remove("x-key2-x"));
+        assertTrue(this.view.remove("x-key3-x", "x-value3-x"));
+        assertEquals(Arrays.asList("x-key35-x"), new ArrayList<>(this.view.keys()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPutOutOfRange() throws Exception {
+        this.view.put("x-key4-x", "x-value4-x");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPutIfAbsentOutOfRange() throws Exception {
+        this.view.putIfAbsent("x-key1-x", "x-value1-x");
+    }
+
+    @Test
+    public void testListeners() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        this.view.addListener(listener);
+
+        this.registry.put("x-key1-x", "x-value1B-x");
+        this.registry.put("x-key2-x", "x-value2B-x");
+        this.view.put("x-key35-x", "x-value35-x");
+        this.registry.put("x-key4-x", "x-value4-x");
+
+        assertEquals(Arrays.asList("replace:x-key2-x", "put:x-key35-x"), listener.events);
+
+        // Removal through another view of the same range
+        this.registry.subRegistry(KeyRange.between("x-key2-x", "x-key4-x")).removeListener(listener);
+        assertEquals(0, this.registry.getListeners().size());
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ *   Copyright 2015 AML Innovation & Consulting LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.amlinv.registry.util.sorted;
+
+import com.amlinv.registry.util.listener.SimpleSynchronousNotificationExecutor;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class SortedConcurrentRegistryTest {
+
+    private SortedConcurrentRegistry<String, String> registry;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.registry = new SortedConcurrentRegistry<>();
+
+        this.registry.put("x-key3-x", "x-value3-x");
+        this.registry.put("x-key1-x", "x-value1-x");
+        this.registry.put("x-key4-x", "x-value4-x");
+        this.registry.put("x-key2-x", "x-value2-x");
+    }
+
+    @Test
+    public void testSortedKeys() throws Exception {
+        assertNull(this.registry.comparator());
+        assertEquals(Arrays.asList("x-key1-x", "x-key2-x", "x-key3-x", "x-key4-x"),
+                new ArrayList<>(this.registry.keys()));
+        assertEquals(Arrays.asList("x-value1-x", "x-value2-x", "x-value3-x", "x-value4-x"),
+                new ArrayList<>(this.registry.values()));
+        assertEquals("x-key1-x", this.registry.asSortedMap().firstKey());
+    }
+
+    @Test
+    public void testComparator() throws Exception {
+        Comparator<String> reverse = Collections.reverseOrder();
+        this.registry =
+                new SortedConcurrentRegistry<>(reverse, new SimpleSynchronousNotificationExecutor<String, String>());
+        this.registry.put("x-key1-x", "x-value1-x");
+        this.registry.put("x-key2-x", "x-value2-x");
+
+        assertSame(reverse, this.registry.comparator());
+        assertEquals(Arrays.asList("x-key2-x", "x-key1-x"), new ArrayList<>(this.registry.keys()));
+    }
+
+    @Test
+    public void testKeyOrderedNotification() throws Exception {
+        this.registry.setKeyOrderedNotification(true);
+        assertTrue(this.registry.isKeyOrderedNotification());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testKeyOrderedNotificationWithComparator() throws Exception {
+        this.registry = new SortedConcurrentRegistry<>(String.CASE_INSENSITIVE_ORDER,
+                new SimpleSynchronousNotificationExecutor<String, String>());
+
+        this.registry.setKeyOrderedNotification(true);
+    }
+
+    @Test
+    public void testRangeMap() throws Exception {
+        SortedMap<String, String> range = this.registry.rangeMap(KeyRange.between("x-key2-x", "x-key4-x"));
+        assertEquals(Arrays.asList("x-key2-x", "x-key3-x"), new ArrayList<>(range.keySet()));
+
+        // Backed by the registry
+        this.registry.remove("x-key2-x");
+        this.registry.put("x-key25-x", "x-value25-x");
+        assertEquals(Arrays.asList("x-key25-x", "x-key3-x"), new ArrayList<>(range.keySet()));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testRangeMapReadOnly() throws Exception {
+        this.registry.rangeMap(KeyRange.atLeast("x-key2-x")).put("x-key9-x", "x-value9-x");
+    }
+
+    @Test
+    public void testRangeListener() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        this.registry.addRangeListener(KeyRange.between("x-key2-x", "x-key4-x"), listener);
+
+        this.registry.put("x-key1-x", "x-value1B-x");
+        this.registry.put("x-key2-x", "x-value2B-x");
+        this.registry.remove("x-key3-x");
+        this.registry.putIfAbsent("x-key3-x", "x-value3B-x");
+        this.registry.remove("x-key4-x");
+
+        assertEquals(Arrays.asList("replace:x-key2-x", "remove:x-key3-x", "put:x-key3-x"), listener.events);
+
+        this.registry.removeRangeListener(KeyRange.between("x-key2-x", "x-key4-x"), listener);
+        assertEquals(0, this.registry.getListeners().size());
+    }
+
+    @Test
+    public void testSubRegistry() throws Exception {
+        RegistryRangeView<String, String> view = this.registry.subRegistry(KeyRange.lessThan("x-key3-x"));
+
+        assertSame(this.registry, view.getRegistry());
+        assertEquals(KeyRange.lessThan("x-key3-x"), view.getRange());
+        assertEquals(Arrays.asList("x-key1-x", "x-key2-x"), new ArrayList<>(view.keys()));
+    }
+}
@@ -0,0 +1,618 @@
+/*
+ *   Copyright 2015 AML Innovation & Consulting LLC
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.amlinv.registry.util.store;
+
+import com.amlinv.registry.util.RegistryListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class NearCacheRegistryTest {
+
+    private FakeBackingStore backingStore;
+    private RecordingListener listener;
+    private NearCacheRegistry<String, String> registry;
+
+    @Before
+    public void setupTest() throws Exception {
+        this.backingStore = new FakeBackingStore(20);
+        this.listener = new RecordingListener();
+
+        this.registry = new NearCacheRegistry<>(this.backingStore, this.backingStore);
+        this.registry.addListener(this.listener);
+    }
+
+    @After
+    public void cleanupTest() throws Exception {
+        this.registry.shutdown();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructWithoutLoader() throws Exception {
+        new NearCacheRegistry<String, String>(null, this.backingStore);
+    }
+
+    @Test
+    public void testGetReadsThrough() throws Exception {
+        this.backingStore.data.put("x-key1-x", "x-value1-x");
+
+        assertEquals("x-value1-x", this.registry.get("x-key1-x"));
+        assertEquals("x-value1-x", this.registry.get("x-key1-x"));
+        assertTrue(this.registry.containsKey("x-key1-x"));
+        assertEquals(1, this.backingStore.loadCount.get());
+
+        assertEquals(Arrays.asList("put:x-key1-x=x-value1-x"), this.listener.events);
+
+        // Loaded entries are not dirty
+        assertEquals(0, this.registry.getDirtyCount());
+    }
+
+    @Test
+    public void testGetMissingFromStore() throws Exception {
+        assertNull(this.registry.get("x-key1-x"));
+        assertFalse(this.registry.containsKey("x-key1-x"));
+        assertEquals(0, this.listener.events.size());
+    }
+
+    @Test
+    public void testConcurrentMissesCoalesced() throws Exception {
+        this.backingStore.data.put("x-key1-x", "x-value1-x");
+
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final List<String> results = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new LinkedList<>();
+        for ( int cur = 0; cur < 8; cur++ ) {
+            Thread oneThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                        results.add(registry.get("x-key1-x"));
+                    } catch ( InterruptedException intExc ) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            oneThread.start();
+            threads.add(oneThread);
+        }
+
+        startLatch.countDown();
+        for ( Thread oneThread : threads ) {
+            oneThread.join();
+        }
+
+        assertEquals(Collections.nCopies(8, "x-value1-x"), results);
+        assertEquals(1, this.backingStore.loadCount.get());
+        assertEquals(Arrays.asList("put:x-key1-x=x-value1-x"), this.listener.events);
+    }
+
+    @Test
+    public void testRemoveDuringLoadNotResurrected() throws Exception {
+        this.backingStore.data.put("x-key1-x", "x-value1-x");
+        this.backingStore.loadStarted = new CountDownLatch(1);
+        this.backingStore.loadRelease = new CountDownLatch(1);
+
+        final AtomicReference<String> loadResult = new AtomicReference<>("x-unset-x");
+        Thread loadThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loadResult.set(registry.get("x-key1-x"));
+            }
+        });
+        loadThread.start();
+        assertTrue(this.backingStore.loadStarted.await(5, TimeUnit.SECONDS));
+
+        // Remove, and write the removal, while the load holds the old value.
+        this.registry.remove("x-key1-x");
+        this.registry.flush();
+        assertEquals(0, this.registry.getDirtyCount());
+
+        this.backingStore.loadRelease.countDown();
+        loadThread.join();
+
+        assertNull(loadResult.get());
+        assertFalse(this.registry.asMap().containsKey("x-key1-x"));
+        assertNull(this.registry.get("x-key1-x"));
+        assertEquals(Collections.<String>emptyList(), this.listener.events);
+    }
+
+    @Test
+    public void testPutDuringLoadWins() throws Exception {
+        this.backingStore.data.put("x-key1-x", "x-value1-x");
+        this.backingStore.loadStarted = new CountDownLatch(1);
+        this.backingStore.loadRelease = new CountDownLatch(1);
+
+        final AtomicReference<String> loadResult = new AtomicReference<>("x-unset-x");
+        Thread loadThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loadResult.set(registry.get("x-key1-x"));
+            }
+        });
+        loadThread.start();
+        assertTrue(this.backingStore.loadStarted.await(5, TimeUnit.SECONDS));
+
+        this.registry.remove("x-key1-x");
+        this.registry.put("x-key1-x", "x-value1B-x");
+
+        this.backingStore.loadRelease.countDown();
+        loadThread.join();
+
+        assertEquals("x-value1B-x", loadResult.get());
+        assertEquals("x-value1B-x", this.registry.get("x-key1-x"));
+        assertEquals(Arrays.asList("put:x-key1-x=x-value1B-x"), this.listener.events);
+    }
+
+    @Test
+    public void testLoadFailure() throws Exception {
+        this.backingStore.failLoads = true;
+
+        try {
+            this.registry.get("x-key1-x");
+            fail("expected RegistryStoreException");
+        } catch ( RegistryStoreException expected ) {
+            assertTrue(expected.getCause() instanceof java.io.IOException);
+        }
+    }
+
+    @Test
+    public void testPutWritesBehindOnFlush() throws Exception {
+        this.registry.put("x-key1-x", "x-value1-x");
+        this.registry.put("x-key2-x", "x-value2-x");
+        this.registry.put("x-key1-x", "x-value1B-x");
+
+        assertEquals(0, this.backingStore.data.size());
+        assertEquals(2, this.registry.getDirtyCount());
+
+        this.registry.flush();
+
+        assertEquals(1, this.backingStore.writeCount.get());
+        assertEquals("x-value1B-x", this.backingStore.data.get("x-key1-x"));
+        assertEquals("x-value2-x", this.backingStore.data.get("x-key2-x"));
+        assertEquals(0, this.registry.getDirtyCount());
+
+        assertEquals(Arrays.asList("put:x-key1-x=x-value1-x", "put:x-key2-x=x-value2-x",
+                "replace:x-key1-x=x-value1-x>x-value1B-x"), this.listener.events);
+    }
+
+    @Test
+    public void testRemoveWritesBehindAndDoesNotReload() throws Exception {
+        this.backingStore.data.put("x-key1-x", "x-value1-x");
+
+        this.registry.remove("x-key1-x");
+        assertNull(this.registry.get("x-key1-x"));
+        assertEquals(0, this.backingStore.loadCount.get());
+
+        this.registry.flush();
+        assertFalse(this.backingStore.data.containsKey("x-key1-x"));
+        assertEquals(0, this.registry.getDirtyCount());
+    }
+
+    @Test
+    public void testRemoveByKeyAndValue() throws Exception {
+        this.registry.put("x-key1-x", "x-value1-x");
+        this.registry.flush();
+
+        assertFalse(this.registry.remove("x-key1-x", "x-wrong-value-x"));
+        assertEquals(0, this.registry.getDirtyCount());
+
+        assertTrue(this.registry.remove("x-key1-x", "x-value1-x"));
+        this.registry.flush();
+        assertFalse(this.backingStore.data.containsKey("x-key1-x"));
+    }
+
+    @Test
+    public void testPutIfAbsentChecksBackingStore() throws Exception {
+        this.backingStore.data.put("x-key1-x", "x-value1-x");
+
+        assertEquals("x-value1-x", this.registry.putIfAbsent("x-key1-x", "x-value1B-x"));
+        assertNull(this.registry.putIfAbsent("x-key2-x", "x-value2-x"));
+        assertEquals(1, this.registry.getDirtyCount());
+
+        this.registry.flush();
+        assertEquals("x-value1-x", this.backingStore.data.get("x-key1-x"));
+        assertEquals("x-value2-x", this.backingStore.data.get("x-key2-x"));
+    }
+
+    @Test
+    public void testFailedFlushRetained() throws Exception {
+        this.registry.put("x-key1-x", "x-value1-x");
+        this.backingStore.failWrites = true;
+
+        try {
+            this.registry.flush();
+            fail("expected RegistryStoreException");
+        } catch ( RegistryStoreException expected ) {
+            assertEquals(1, this.registry.getDirtyCount());
+        }
+
+        this.backingStore.failWrites = false;
+        this.registry.flush();
+        assertEquals("x-value1-x", this.backingStore.data.get("x-key1-x"));
+        assertEquals(0, this.registry.getDirtyCount());
+    }
+
+    @Test
+    public void testSizeTriggeredFlush() throws Exception {
+        this.registry.setBatchSize(3);
+        this.registry.setFlushIntervalMs(0);
+        this.registry.start();
+
+        this.registry.put("x-key1-x", "x-value1-x");
+        this.registry.put("x-key2-x", "x-value2-x");
+        assertEquals(0, this.backingStore.writeCount.get());
+
+        this.registry.put("x-key3-x", "x-value3-x");
+        this.waitForDirtyCount(0);
+
+        assertEquals(3, this.backingStore.data.size());
+    }
+
+    @Test
+    public void testTimeTriggeredFlush() throws Exception {
+        this.registry.setFlushIntervalMs(50);
+        this.registry.start();
+
+        this.registry.put("x-key1-x", "x-value1-x");
+        this.waitForDirtyCount(0);
+
+        assertEquals("x-value1-x", this.backingStore.data.get("x-key1-x"));
+    }
+
+    @Test
+    public void testShutdownFlushes() throws Exception {
+        this.registry.setFlushIntervalMs(0);
+        this.registry.start();
+
+        this.registry.put("x-key1-x", "x-value1-x");
+        this.registry.shutdown();
+
+        assertEquals("x-value1-x", this.backingStore.data.get("x-key1-x"));
+    }
+
+    @Test
+    public void testConcurrentWritesMatchBackingStoreAfterFlush() throws Exception {
+        this.backingStore = new FakeBackingStore(0);
+        this.registry = new NearCacheRegistry<>(this.backingStore, this.backingStore);
+
+        // Listeners run between the local change and recording it as dirty; pause there to widen any race.
+        this.registry.addListener(new PausingListener());
+
+        for ( int round = 0; round < 50; round++ ) {
+            this.runConcurrently(8, round, new RandomOperations() {
+                @Override
+                public void apply(Random random, String key, String value) {
+                    switch ( random.nextInt(3) ) {
+                        case 0:
+                            registry.put(key, value);
+                            break;
+
+                        case 1:
+                            registry.remove(key);
+                            break;
+
+                        default:
+                            registry.remove(key, value);
+                            break;
+                    }
+                }
+            });
+
+            this.registry.flush();
+
+            assertEquals("round " + round, new HashMap<>(this.registry.asMap()),
+                    new HashMap<>(this.backingStore.data));
+        }
+    }
+
+    /**
+     * Listeners are notified without holding the registry's locks, so two threads whose listeners each update the key
+     * the other thread is changing must not deadlock.
+     */
+    @Test
+    public void testListenersUpdatingOtherKeysDoNotDeadlock() throws Exception {
+        final List<Throwable> failures = new CopyOnWriteArrayList<>();
+        this.registry.addListener(new CrossKeyListener(failures) {
+            @Override
+            protected void onPartnerKey(String partnerKey) {
+                registry.put(partnerKey, "x-from-listener-x");
+            }
+        });
+
+        this.runCrossKeyThreads(new CrossKeyOperation() {
+            @Override
+            public void run(String key) {
+                registry.put(key, "x-value-x");
+            }
+        });
+
+        assertEquals(Collections.emptyList(), failures);
+        assertEquals("x-from-listener-x", this.registry.get("x-key1-x"));
+        assertEquals("x-from-listener-x", this.registry.get("x-key2-x"));
+    }
+
+    @Test
+    public void testListenersReadingThroughOtherKeysDoNotDeadlock() throws Exception {
+        this.backingStore.data.put("x-key1-x", "x-value1-x");
+        this.backingStore.data.put("x-key2-x", "x-value2-x");
+
+        final List<Throwable> failures = new CopyOnWriteArrayList<>();
+        this.registry.addListener(new CrossKeyListener(failures) {
+            @Override
+            protected void onPartnerKey(String partnerKey) {
+                registry.get(partnerKey);
+                registry.get(partnerKey + "-missing");
+            }
+        });
+
+        this.runCrossKeyThreads(new CrossKeyOperation() {
+            @Override
+            public void run(String key) {
+                registry.get(key);
+            }
+        });
+
+        assertEquals(Collections.emptyList(), failures);
+        assertEquals(4, this.backingStore.loadCount.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBatchSize() throws Exception {
+        this.registry.setBatchSize(0);
+    }
+
+
+
+                                                 ////             ////
+                                                 ////  INTERNALS  ////
+                                                 ////             ////
+
+    protected void runConcurrently(int threadCount, int round, final RandomOperations operations)
+            throws Exception {
+
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+        List<Thread> threads = new LinkedList<>();
+        for ( int threadNum = 0; threadNum < threadCount; threadNum++ ) {
+            final Random random = new Random(( round * 100 ) + threadNum);
+
+            Thread oneThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                        for ( int cur = 0; cur < 100; cur++ ) {
+                            operations.apply(random, "x-key" + random.nextInt(4) + "-x",
+                                    "x-value" + random.nextInt(4) + "-x");
+                        }
+                    } catch ( Throwable thrown ) {
+                        failures.add(thrown);
+                    }
+                }
+            });
+            oneThread.start();
+            threads.add(oneThread);
+        }
+
+        startLatch.countDown();
+        for ( Thread oneThread : threads ) {
+            oneThread.join();
+        }
+
+        assertEquals(Collections.<Throwable>emptyList(), failures);
+    }
+
+    /**
+     * Run the given operation on x-key1-x and x-key2-x concurrently, from two threads, and wait for both to finish.
+     */
+    protected void runCrossKeyThreads(final CrossKeyOperation operation) throws Exception {
+        List<Thread> threads = new LinkedList<>();
+        for ( final String key : Arrays.asList("x-key1-x", "x-key2-x") ) {
+            Thread oneThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    operation.run(key);
+                }
+            });
+            oneThread.setDaemon(true);
+            oneThread.start();
+            threads.add(oneThread);
+        }
+
+        for ( Thread oneThread : threads ) {
+            oneThread.join(TimeUnit.SECONDS.toMillis(10));
+            assertFalse("deadlocked", oneThread.isAlive());
+        }
+    }
+
+    protected interface CrossKeyOperation {
+        void run(String key);
+    }
+
+    /**
+     * Listener which, once notified of changes to both x-key1-x and x-key2-x from different threads, operates on the
+     * other key from each notification.
+     */
+    protected abstract static class CrossKeyListener implements RegistryListener<String, String> {
+        private final CyclicBarrier bothNotifying = new CyclicBarrier(2);
+        private final List<Throwable> failures;
+
+        protected CrossKeyListener(List<Throwable> failures) {
+            this.failures = failures;
+        }
+
+        @Override
+        public void onPutEntry(String putKey, String putValue) {
+            if ( "x-from-listener-x".equals(putValue) ) {
+                return;
+            }
+
+            String partnerKey;
+            if ( "x-key1-x".equals(putKey) ) {
+                partnerKey = "x-key2-x";
+            } else {
+                partnerKey = "x-key1-x";
+            }
+
+            try {
+                this.bothNotifying.await(5, TimeUnit.SECONDS);
+                this.onPartnerKey(partnerKey);
+            } catch ( Exception exc ) {
+                this.failures.add(exc);
+            }
+        }
+
+        @Override
+        public void onRemoveEntry(String removeKey, String removeValue) {
+        }
+
+        @Override
+        public void onReplaceEntry(String replaceKey, String oldValue, String newValue) {
+        }
+
+        protected abstract void onPartnerKey(String partnerKey);
+    }
+
+    protected interface RandomOperations {
+        void apply(Random random, String key, String value);
+    }
+
+    protected void waitForDirtyCount(int expected) throws Exception {
+        long expire = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ( ( this.registry.getDirtyCount() != expected ) && ( System.nanoTime() < expire ) ) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(expected, this.registry.getDirtyCount());
+    }
+
+    /**
+     * In-memory backing store with artificial latency on every access.
+     */
+    protected static class FakeBackingStore implements RegistryLoader<String, String>, RegistryWriter<String, String> {
+        private final long latencyMs;
+        private final Map<String, String> data = new ConcurrentHashMap<>();
+        private final AtomicInteger loadCount = new AtomicInteger();
+        private final AtomicInteger writeCount = new AtomicInteger();
+        private volatile boolean failLoads;
+        private volatile boolean failWrites;
+        private volatile CountDownLatch loadStarted;
+        private volatile CountDownLatch loadRelease;
+
+        public FakeBackingStore(long latencyMs) {
+            this.latencyMs = latencyMs;
+        }
+
+        @Override
+        public String load(String key) throws Exception {
+            Thread.sleep(this.latencyMs);
+            this.loadCount.incrementAndGet();
+
+            if ( this.failLoads ) {
+                throw new java.io.IOException("x-load-failure-x");
+            }
+
+            String result = this.data.get(key);
+
+            // Optionally hold the loaded value until released, so tests can change the registry during the load.
+            if ( this.loadStarted != null ) {
+                this.loadStarted.countDown();
+                this.loadRelease.await();
+            }
+
+            return result;
+        }
+
+        @Override
+        public void writeAll(Map<String, String> updates, Set<String> removals) throws Exception {
+            Thread.sleep(this.latencyMs);
+
+            if ( this.failWrites ) {
+                throw new java.io.IOException("x-write-failure-x");
+            }
+
+            this.writeCount.incrementAndGet();
+            this.data.putAll(updates);
+            this.data.keySet().removeAll(removals);
+        }
+    }
+
+    /**
+     * Listener which occasionally pauses, giving other threads the chance to run in the middle of an update.
+     */
+    protected static class PausingListener implements RegistryListener<String, String> {
+        private final Random random = new Random(0);
+
+        @Override
+        public void onPutEntry(String putKey, String putValue) {
+            this.maybePause();
+        }
+
+        @Override
+        public void onRemoveEntry(String removeKey, String removeValue) {
+            this.maybePause();
+        }
+
+        @Override
+        public void onReplaceEntry(String replaceKey, String oldValue, String newValue) {
+            this.maybePause();
+        }
+
+        private void maybePause() {
+            if ( this.random.nextInt(20) == 0 ) {
+                try {
+                    Thread.sleep(1);
+                } catch ( InterruptedException intExc ) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    protected static class RecordingListener implements RegistryListener<String, String> {
+        private final List<String> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onPutEntry(String putKey, String putValue) {
+            this.events.add("put:" + putKey + "=" + putValue);
+        }
+
+        @Override
+        public void onRemoveEntry(String removeKey, String removeValue) {
+            this.events.add("remove:" + removeKey + "=" + removeValue);
+        }
+
+        @Override
+        public void onReplaceEntry(String replaceKey, String oldValue, String newValue) {
+            this.events.add("replace:" + replaceKey + "=" + oldValue + ">" + newValue);
+        }
+    }
+}